@@ -0,0 +1,19 @@
+package com.ben.pagination.benchmark;
+
+import com.ben.pagination.utils.SearchCriteria;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BenchmarkCriteria implements SearchCriteria {
+    private String predicateType;
+    private String fullName;
+    private String email;
+    private List<Long> ids;
+
+    @Override
+    public boolean isEmpty() {
+        return fullName == null && email == null && ids == null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ben.pagination.benchmark;
+
+import com.ben.pagination.SpringBootWithCustomPaginationApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>The application started on an in-memory H2 database in MySQL mode, seeded with {@code rows} students.</p>
+ * <em>The row count is set with {@code -Djmh.args="-p rows=1000000"}</em>.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    @Param("10000")
+    public int rows;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(SpringBootWithCustomPaginationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false",
+                        // Measure the queries, not the result cache
+                        "--pagination.result-cache.enabled=false",
+                        // Measure the offset scan of the deep pages, not the seek the guardrails switch to
+                        "--pagination.guardrails.max-offset=" + Integer.MAX_VALUE,
+                        "--logging.level.root=WARN");
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{"Student " + i, "student" + i + "@school" + (i % 10) + ".com"});
+            if (batch.size() == 1000 || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO student (full_name, email) VALUES (?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
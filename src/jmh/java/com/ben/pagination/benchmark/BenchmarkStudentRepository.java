@@ -0,0 +1,38 @@
+package com.ben.pagination.benchmark;
+
+import com.ben.pagination.entity.Student;
+import com.ben.pagination.utils.PagingRepositoryImpl;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * <p>A student repository applying one {@code PagingRepositoryHelper} predicate, the one named by the criteria.</p>
+ */
+public class BenchmarkStudentRepository extends PagingRepositoryImpl<Student, BenchmarkCriteria> {
+    @Override
+    protected void setEntityClass() {
+        this.entityClass = Student.class;
+    }
+
+    @Override
+    protected Predicate getPredicate(BenchmarkCriteria criteria, CriteriaBuilder cb, Root<Student> entityRoot) {
+        Predicate pred = cb.conjunction();
+        switch (criteria.getPredicateType()) {
+            case "like":
+                return helper.addSimpleLike(pred, cb, entityRoot, criteria, "fullName", BenchmarkCriteria::getFullName);
+            case "likeOnTwoColumns":
+                return helper.addSimpleLikeOnTwoColumns(pred, cb, entityRoot, criteria, "fullName", "email", BenchmarkCriteria::getFullName);
+            case "equal":
+                return helper.addSimpleEqual(pred, cb, entityRoot, "email", criteria.getEmail());
+            case "notEqual":
+                return helper.addSimpleNotEqual(pred, cb, entityRoot, "email", criteria.getEmail());
+            case "equalsNull":
+                return helper.addSimpleEqualsNull(pred, cb, entityRoot, "email");
+            case "listIn":
+                return helper.addSimpleListIn(pred, cb, entityRoot, criteria, "id", BenchmarkCriteria::getIds);
+            default:
+                return pred;
+        }
+    }
+}
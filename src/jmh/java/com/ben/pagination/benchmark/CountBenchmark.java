@@ -0,0 +1,55 @@
+package com.ben.pagination.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * <p>{@code PagingRepositoryImpl.count} with each kind of {@code PagingRepositoryHelper} predicate.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CountBenchmark {
+
+    @Param({"none", "like", "likeOnTwoColumns", "equal", "notEqual", "equalsNull", "listIn"})
+    public String predicateType;
+
+    private BenchmarkStudentRepository repository;
+    private BenchmarkCriteria criteria;
+
+    @Setup
+    public void setUp(BenchmarkDatabase database) {
+        repository = new BenchmarkStudentRepository();
+        AutowireCapableBeanFactory beanFactory = database.context.getAutowireCapableBeanFactory();
+        beanFactory.autowireBean(repository);
+        beanFactory.initializeBean(repository, "benchmarkStudentRepository");
+
+        List<Long> ids = LongStream.rangeClosed(1, 100).map(id -> id * 7).boxed().collect(Collectors.toList());
+        criteria = new BenchmarkCriteria();
+        criteria.setPredicateType(predicateType);
+        criteria.setFullName("student 4");
+        criteria.setEmail("student42@school2.com");
+        criteria.setIds(ids);
+    }
+
+    @Benchmark
+    public Long count() {
+        return repository.count(criteria);
+    }
+}
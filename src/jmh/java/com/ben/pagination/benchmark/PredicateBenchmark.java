@@ -0,0 +1,74 @@
+package com.ben.pagination.benchmark;
+
+import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.entity.Student;
+import com.ben.pagination.utils.CriteriaCompiler;
+import com.ben.pagination.utils.PagingRepositoryHelper;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The cost of building the predicates alone, without any query, and of {@code PagingRepositoryHelper.toBooleanObject}.</p>
+ * <em>The predicates are the ones {@code StudentRepositoryImpl} compiles from the annotations of {@code StudentCriteria}</em>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PredicateBenchmark {
+
+    private CriteriaCompiler.CompiledCriteria<StudentCriteria> compiledCriteria;
+    private PagingRepositoryHelper helper;
+    private CriteriaBuilder cb;
+    private Root<Student> root;
+    private StudentCriteria emptyCriteria;
+    private StudentCriteria filteredCriteria;
+
+    @Setup
+    public void setUp(BenchmarkDatabase database) {
+        compiledCriteria = database.context.getBean(CriteriaCompiler.class).compile(StudentCriteria.class);
+        helper = database.context.getBean(PagingRepositoryHelper.class);
+        cb = database.context.getBean(EntityManagerFactory.class).getCriteriaBuilder();
+        root = cb.createQuery(Student.class).from(Student.class);
+        emptyCriteria = new StudentCriteria();
+        filteredCriteria = new StudentCriteria();
+        filteredCriteria.setFullName("Student 4");
+        filteredCriteria.setEmail("school2");
+    }
+
+    @Benchmark
+    public Predicate emptyCriteria() {
+        return compiledCriteria.toPredicate(emptyCriteria, cb, root);
+    }
+
+    @Benchmark
+    public Predicate filteredCriteria() {
+        return compiledCriteria.toPredicate(filteredCriteria, cb, root);
+    }
+
+    @Benchmark
+    public Boolean toBooleanObject(BooleanInput input) {
+        return helper.toBooleanObject(input.value);
+    }
+
+    @State(Scope.Benchmark)
+    public static class BooleanInput {
+        @Param({"true", "Y", "off", "blue"})
+        public String value;
+    }
+}
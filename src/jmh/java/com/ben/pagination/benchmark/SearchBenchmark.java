@@ -0,0 +1,73 @@
+package com.ben.pagination.benchmark;
+
+import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.entity.Student;
+import com.ben.pagination.repository.StudentRepositoryImpl;
+import com.ben.pagination.utils.CursorCodec;
+import com.ben.pagination.utils.CursorPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@code PagingRepositoryImpl.search} on the first page and on the last one, against the keyset search at the same depth.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+
+    @Param({"shallow", "deep"})
+    public String depth;
+
+    @Param("20")
+    public int pageSize;
+
+    private StudentRepositoryImpl repository;
+    private StudentCriteria criteria;
+    private StudentCriteria filteredCriteria;
+    private int page;
+    private String cursor;
+
+    @Setup
+    public void setUp(BenchmarkDatabase database) {
+        repository = database.context.getBean(StudentRepositoryImpl.class);
+        criteria = new StudentCriteria();
+        filteredCriteria = new StudentCriteria();
+        filteredCriteria.setEmail("school3");
+        page = "deep".equals(depth) ? database.rows / pageSize - 1 : 0;
+        if (page > 0) {
+            List<Student> previous = repository.search(criteria, page - 1, pageSize, "asc", "fullName").getContent();
+            Student last = previous.get(previous.size() - 1);
+            cursor = database.context.getBean(CursorCodec.class).encode(last.getFullName(), last.getId());
+        }
+    }
+
+    @Benchmark
+    public Page<Student> search() {
+        return repository.search(criteria, page, pageSize, "asc", "fullName");
+    }
+
+    @Benchmark
+    public Page<Student> searchFiltered() {
+        return repository.search(filteredCriteria, page / 10, pageSize, "asc", "fullName");
+    }
+
+    @Benchmark
+    public CursorPage<Student> searchAfter() {
+        return repository.searchAfter(criteria, cursor, pageSize, "asc", "fullName");
+    }
+}
@@ -0,0 +1,47 @@
+package com.ben.pagination.controller;
+
+import com.ben.pagination.utils.PagePrefetcher;
+import com.ben.pagination.utils.QueryPlanCache;
+import com.ben.pagination.utils.ResultCache;
+import com.ben.pagination.utils.SingleFlight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/pagination")
+public class PaginationController {
+    @Autowired
+    private QueryPlanCache planCache;
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private PagePrefetcher prefetcher;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @GetMapping("/planCache")
+    public ResponseEntity<QueryPlanCache.Stats> planCacheStats(){
+        return ResponseEntity.ok(planCache.getStats());
+    }
+
+    @GetMapping("/resultCache")
+    public ResponseEntity<ResultCache.Stats> resultCacheStats(){
+        return ResponseEntity.ok(resultCache.getStats());
+    }
+
+    @GetMapping("/prefetch")
+    public ResponseEntity<PagePrefetcher.Stats> prefetchStats(){
+        return ResponseEntity.ok(prefetcher.getStats());
+    }
+
+    @GetMapping("/singleFlight")
+    public ResponseEntity<SingleFlight.Stats> singleFlightStats(){
+        return ResponseEntity.ok(singleFlight.getStats());
+    }
+}
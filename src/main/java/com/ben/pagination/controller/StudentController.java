@@ -1,11 +1,24 @@
 package com.ben.pagination.controller;
 
 import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.dto.StudentSummary;
 import com.ben.pagination.entity.Student;
 import com.ben.pagination.service.StudentService;
+import com.ben.pagination.utils.BatchInserter;
+import com.ben.pagination.utils.CountMode;
+import com.ben.pagination.utils.CursorPage;
+import com.ben.pagination.utils.ExportFormat;
+import com.ben.pagination.utils.FacetCount;
+import com.ben.pagination.utils.FacetedPage;
+import com.ben.pagination.utils.SearchRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,8 +27,12 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/student")
@@ -28,6 +45,11 @@ public class StudentController {
         return ResponseEntity.ok(studentService.saveStudent(student));
     }
 
+    @PostMapping(value = "/saveAll", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BatchInserter.BatchResult> saveStudents(final HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(studentService.saveStudents(request.getInputStream()));
+    }
+
     @GetMapping("/all")
     public ResponseEntity<List<Student>> students(){
         return ResponseEntity.ok(studentService.allStudents());
@@ -38,7 +60,110 @@ public class StudentController {
                                                   @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
                                                   @RequestParam(required = false) final String sortDirection,
                                                   @RequestParam(required = false) final String sortedField,
+                                                  @RequestParam(required = false) final CountMode countMode,
                                                   @RequestBody final StudentCriteria criteria) {
+        if (countMode != null) {
+            return studentService.search(criteria, currentPage, pageSize, sortDirection, sortedField, countMode);
+        }
         return studentService.search(criteria, currentPage, pageSize, sortDirection, sortedField);
     }
+
+    @PostMapping("/searchWithFacets")
+    public FacetedPage<Student> findStudentByCriteriaWithFacets(@RequestParam final List<String> facets,
+                                                                @RequestParam(required = false, defaultValue = "0") final Integer currentPage,
+                                                                @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                                @RequestParam(required = false) final String sortDirection,
+                                                                @RequestParam(required = false) final String sortedField,
+                                                                @RequestBody final StudentCriteria criteria) {
+        return studentService.searchWithFacets(criteria, facets, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    @PostMapping("/facets")
+    public Map<String, List<FacetCount>> countStudentsByFacets(@RequestParam final List<String> facets,
+                                                               @RequestBody final StudentCriteria criteria) {
+        return studentService.facets(criteria, facets);
+    }
+
+    @PostMapping("/searchBatch")
+    public List<Page<Student>> findStudentsByCriteriaBatch(@RequestBody final List<SearchRequest<StudentCriteria>> requests) {
+        return studentService.searchBatch(requests);
+    }
+
+    @PostMapping("/searchWithPaginationAsync")
+    public Mono<Page<Student>> findStudentByCriteriaAsync(@RequestParam(required = false, defaultValue = "0") final Integer currentPage,
+                                                          @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                          @RequestParam(required = false) final String sortDirection,
+                                                          @RequestParam(required = false) final String sortedField,
+                                                          @RequestBody final StudentCriteria criteria) {
+        return studentService.searchReactive(criteria, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    @PostMapping(value = "/searchStream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Student> streamStudentsByCriteria(@RequestParam(required = false) final String sortDirection,
+                                                  @RequestParam(required = false) final String sortedField,
+                                                  @RequestBody final StudentCriteria criteria) {
+        return studentService.stream(criteria, sortDirection, sortedField);
+    }
+
+    @PostMapping("/searchWithProjection")
+    public Page<Map<String, Object>> findStudentFieldsByCriteria(@RequestParam final List<String> fields,
+                                                                 @RequestParam(required = false, defaultValue = "0") final Integer currentPage,
+                                                                 @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                                 @RequestParam(required = false) final String sortDirection,
+                                                                 @RequestParam(required = false) final String sortedField,
+                                                                 @RequestBody final StudentCriteria criteria) {
+        return studentService.search(criteria, fields, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    @PostMapping("/searchSummaries")
+    public Page<StudentSummary> findStudentSummariesByCriteria(@RequestParam(required = false, defaultValue = "0") final Integer currentPage,
+                                                               @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                               @RequestParam(required = false) final String sortDirection,
+                                                               @RequestParam(required = false) final String sortedField,
+                                                               @RequestBody final StudentCriteria criteria) {
+        return studentService.searchSummaries(criteria, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    @PostMapping("/searchWithSlice")
+    public Slice<Student> findStudentSliceByCriteria(@RequestParam(required = false, defaultValue = "0") final Integer currentPage,
+                                                     @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                     @RequestParam(required = false) final String sortDirection,
+                                                     @RequestParam(required = false) final String sortedField,
+                                                     @RequestBody final StudentCriteria criteria) {
+        return studentService.searchSlice(criteria, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    @PostMapping("/export")
+    public void exportStudents(@RequestParam(required = false, defaultValue = "NDJSON") final ExportFormat format,
+                               @RequestParam(required = false) final String sortDirection,
+                               @RequestParam(required = false) final String sortedField,
+                               @RequestBody final StudentCriteria criteria,
+                               final HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"students." + format.getExtension() + "\"");
+        studentService.export(criteria, sortDirection, sortedField, format, response.getOutputStream());
+    }
+
+    @PostMapping("/searchWithCursor")
+    public CursorPage<Student> findStudentByCriteriaAfter(@RequestParam(required = false) final String cursor,
+                                                          @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                          @RequestParam(required = false) final String sortDirection,
+                                                          @RequestParam(required = false) final String sortedField,
+                                                          @RequestBody final StudentCriteria criteria) {
+        return studentService.searchAfter(criteria, cursor, pageSize, sortDirection, sortedField);
+    }
+
+    @PostMapping("/changes")
+    public CursorPage<Student> findStudentChangesByCriteria(@RequestParam(required = false) final String since,
+                                                            @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                            @RequestBody final StudentCriteria criteria) {
+        return studentService.changes(criteria, since, pageSize);
+    }
+
+    @PostMapping(value = "/changesStream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<CursorPage<Student>> streamStudentChangesByCriteria(@RequestParam(required = false) final String since,
+                                                                    @RequestParam(required = false, defaultValue = "5") final Integer pageSize,
+                                                                    @RequestBody final StudentCriteria criteria) {
+        return studentService.changeStream(criteria, since, pageSize);
+    }
 }
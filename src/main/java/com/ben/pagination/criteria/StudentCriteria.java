@@ -1,15 +1,23 @@
 package com.ben.pagination.criteria;
 
+import com.ben.pagination.utils.Filter;
+import com.ben.pagination.utils.Like;
+import com.ben.pagination.utils.MatchMode;
 import com.ben.pagination.utils.SearchCriteria;
 import lombok.Data;
 
 @Data
 public class StudentCriteria implements SearchCriteria {
+    @Like(value = "fullName", matchMode = "fullNameMatch")
     private String fullName;
+    @Like(value = "email", matchMode = "emailMatch")
     private String email;
+    private MatchMode fullNameMatch;
+    private MatchMode emailMatch;
+    private Filter filter;
 
     @Override
     public boolean isEmpty() {
-        return fullName == null && email == null;
+        return fullName == null && email == null && filter == null;
     }
 }
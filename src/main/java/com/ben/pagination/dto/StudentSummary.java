@@ -0,0 +1,7 @@
+package com.ben.pagination.dto;
+
+/**
+ * <p>A student as listed in search results, only these columns are selected.</p>
+ */
+public record StudentSummary(Long id, String fullName) {
+}
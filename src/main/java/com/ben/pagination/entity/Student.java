@@ -1,14 +1,34 @@
 package com.ben.pagination.entity;
 
+import com.ben.pagination.utils.FullTextIndex;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
+
+import java.time.Instant;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_student_full_name", columnList = "fullName"),
+        @Index(name = "idx_student_email", columnList = "email"),
+        @Index(name = "idx_student_updated_at", columnList = "updatedAt")
+})
+@FullTextIndex(name = "ft_student_full_name", columnList = "fullName")
+@FullTextIndex(name = "ft_student_email", columnList = "email")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,4 +39,9 @@ public class Student {
     private Long id;
     private String fullName;
     private String email;
+    // Maintained by MySQL on every insert and update, whoever writes the row
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "datetime(6) not null default current_timestamp(6) on update current_timestamp(6)")
+    private Instant updatedAt;
 }
@@ -1,14 +1,39 @@
 package com.ben.pagination.service;
 
 import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.dto.StudentSummary;
 import com.ben.pagination.entity.Student;
 import com.ben.pagination.repository.StudentRepository;
 import com.ben.pagination.repository.StudentRepositoryImpl;
+import com.ben.pagination.utils.BatchInserter;
+import com.ben.pagination.utils.ChangeSignals;
+import com.ben.pagination.utils.CountCache;
+import com.ben.pagination.utils.CountMode;
+import com.ben.pagination.utils.CursorPage;
+import com.ben.pagination.utils.ExportFormat;
+import com.ben.pagination.utils.ExportWriter;
+import com.ben.pagination.utils.FacetCount;
+import com.ben.pagination.utils.FacetedPage;
+import com.ben.pagination.utils.InMemorySearchEngine;
+import com.ben.pagination.utils.PageGuard;
+import com.ben.pagination.utils.PagePrefetcher;
+import com.ben.pagination.utils.Projection;
+import com.ben.pagination.utils.ResultCache;
+import com.ben.pagination.utils.SearchRequest;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class StudentService {
@@ -19,8 +44,59 @@ public class StudentService {
     @Autowired
     private StudentRepositoryImpl studentRepositoryImpl;
 
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private PagePrefetcher prefetcher;
+
+    @Autowired
+    private PageGuard pageGuard;
+
+    @Autowired
+    private InMemorySearchEngine inMemoryEngine;
+
+    @Autowired
+    private ChangeSignals changeSignals;
+
+    @Autowired
+    private BatchInserter batchInserter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     public Student saveStudent(Student student){
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        afterWrite(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * <p>Save the students of a json array or of a ndjson stream, they are read one by one as the chunks are written.</p>
+     */
+    public BatchInserter.BatchResult saveStudents(InputStream in) throws IOException {
+        try (MappingIterator<Student> students = objectMapper.readerFor(Student.class).readValues(in)) {
+            return batchInserter.insert(Student.class, students);
+        } finally {
+            // The chunks already committed are not returned, the whole table is read again
+            afterWrite(null);
+        }
+    }
+
+    /**
+     * <p>Drop what was kept of the students after a write, {@code saved} are the students written or {@code null} when they are not known.</p>
+     */
+    private void afterWrite(List<Student> saved) {
+        if (saved == null) inMemoryEngine.reload(Student.class);
+        else inMemoryEngine.write(Student.class, saved);
+        countCache.invalidate(Student.class);
+        resultCache.invalidate(Student.class);
+        prefetcher.invalidate(Student.class);
+        pageGuard.invalidate(Student.class);
+        changeSignals.emit(Student.class);
     }
 
     public List<Student> allStudents(){
@@ -30,4 +106,58 @@ public class StudentService {
     public Page<Student> search(StudentCriteria criteria, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
         return studentRepositoryImpl.search(criteria, currentPage, pageSize, sortDirection, sortedField);
     }
+
+    public Page<Student> search(StudentCriteria criteria, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        return studentRepositoryImpl.search(criteria, currentPage, pageSize, sortDirection, sortedField, countMode);
+    }
+
+    public Map<String, List<FacetCount>> facets(StudentCriteria criteria, List<String> facets) {
+        return studentRepositoryImpl.facets(criteria, facets);
+    }
+
+    public FacetedPage<Student> searchWithFacets(StudentCriteria criteria, List<String> facets, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.searchWithFacets(criteria, facets, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    public List<Page<Student>> searchBatch(List<SearchRequest<StudentCriteria>> requests) {
+        return studentRepositoryImpl.searchBatch(requests);
+    }
+
+    public Mono<Page<Student>> searchReactive(StudentCriteria criteria, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.searchReactive(criteria, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    public Flux<Student> stream(StudentCriteria criteria, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.stream(criteria, sortDirection, sortedField);
+    }
+
+    public Page<Map<String, Object>> search(StudentCriteria criteria, List<String> fields, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.search(criteria, Projection.of(fields), currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    public Page<StudentSummary> searchSummaries(StudentCriteria criteria, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.search(criteria, Projection.of(StudentSummary.class), currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    public Slice<Student> searchSlice(StudentCriteria criteria, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.searchSlice(criteria, currentPage, pageSize, sortDirection, sortedField);
+    }
+
+    public long export(StudentCriteria criteria, String sortDirection, String sortedField, ExportFormat format, OutputStream out) throws IOException {
+        try (ExportWriter writer = new ExportWriter(objectMapper, format, out)) {
+            return studentRepositoryImpl.export(criteria, sortDirection, sortedField, writer::write);
+        }
+    }
+
+    public CursorPage<Student> searchAfter(StudentCriteria criteria, String cursor, Integer pageSize, String sortDirection, String sortedField) {
+        return studentRepositoryImpl.searchAfter(criteria, cursor, pageSize, sortDirection, sortedField);
+    }
+
+    public CursorPage<Student> changes(StudentCriteria criteria, String since, Integer pageSize) {
+        return studentRepositoryImpl.changes(criteria, since, pageSize);
+    }
+
+    public Flux<CursorPage<Student>> changeStream(StudentCriteria criteria, String since, Integer pageSize) {
+        return studentRepositoryImpl.changeStream(criteria, since, pageSize);
+    }
 }
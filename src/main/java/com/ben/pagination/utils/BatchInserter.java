@@ -0,0 +1,123 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Write entities by chunks of {@code pagination.batch.chunk-size} rows with JDBC batches, one commit per chunk.</p>
+ * <em>The rows don't go through the persistence context, an {@code IDENTITY} id would otherwise prevent Hibernate from batching them.
+ * The rows without an id are inserted, the others are upserted, reading the new values through a row alias as MySQL 8.0.19
+ * and later want instead of the deprecated {@code VALUES()}. The properties the database generates are left to it,
+ * only single column properties are supported</em>.
+ */
+@Slf4j
+@Service
+public class BatchInserter {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaginationProperties properties;
+
+    public <T> BatchResult insert(Class<T> entityClass, Iterator<T> rows) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getRuntimeMetamodels().getMappingMetamodel().getEntityDescriptor(entityClass);
+        PersistenceUnitUtil persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+
+        String tableName = persister.getTableName();
+        String idColumn = persister.getIdentifierColumnNames()[0];
+        List<String> columns = new ArrayList<>();
+        List<Integer> written = new ArrayList<>();
+        for (int i = 0; i < persister.getPropertyNames().length; i++) {
+            if (!persister.getPropertyInsertability()[i]) continue;
+            String[] propertyColumns = persister.getPropertyColumnNames(i);
+            if (propertyColumns.length != 1) {
+                throw new IllegalStateException("Unable to batch " + entityClass.getSimpleName() + "." + persister.getPropertyNames()[i]);
+            }
+            columns.add(propertyColumns[0]);
+            written.add(i);
+        }
+        String insert = "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        String upsert = "INSERT INTO " + tableName + " (" + idColumn + ", " + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size() + 1, "?")) + ") AS new ON DUPLICATE KEY UPDATE "
+                + columns.stream().map(column -> column + " = new." + column).collect(Collectors.joining(", "));
+
+        int chunkSize = properties.getBatch().getChunkSize();
+        List<Object[]> inserts = new ArrayList<>(chunkSize);
+        List<Object[]> upserts = new ArrayList<>();
+        List<ChunkResult> chunks = new ArrayList<>();
+        long start = System.nanoTime();
+        long total = 0;
+        try {
+            while (rows.hasNext()) {
+                T row = rows.next();
+                Object id = persistenceUnitUtil.getIdentifier(row);
+                Object[] propertyValues = persister.getPropertyValues(row);
+                Object[] values = written.stream().map(i -> propertyValues[i]).toArray();
+                if (id == null) {
+                    inserts.add(values);
+                } else {
+                    Object[] idAndValues = new Object[values.length + 1];
+                    idAndValues[0] = id;
+                    System.arraycopy(values, 0, idAndValues, 1, values.length);
+                    upserts.add(idAndValues);
+                }
+                if (inserts.size() + upserts.size() == chunkSize || !rows.hasNext()) {
+                    long chunkStart = System.nanoTime();
+                    if (!inserts.isEmpty()) jdbcTemplate.batchUpdate(insert, inserts);
+                    if (!upserts.isEmpty()) jdbcTemplate.batchUpdate(upsert, upserts);
+                    ChunkResult chunk = new ChunkResult(inserts.size() + upserts.size(), (System.nanoTime() - chunkStart) / 1_000_000);
+                    chunks.add(chunk);
+                    total += chunk.getRows();
+                    log.info("Wrote chunk {} of {} {} rows in {} ms ({} rows/s)", chunks.size(), chunk.getRows(),
+                            tableName, chunk.getMillis(), chunk.getRowsPerSecond());
+                    inserts.clear();
+                    upserts.clear();
+                }
+            }
+        } finally {
+            // The upserted rows may be cached with their previous values
+            entityManagerFactory.getCache().evict(entityClass);
+        }
+        return new BatchResult(total, (System.nanoTime() - start) / 1_000_000, chunks);
+    }
+
+    @Value
+    public static class BatchResult {
+        long rows;
+        long millis;
+        List<ChunkResult> chunks;
+
+        public long getRowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000 / millis;
+        }
+    }
+
+    @Value
+    public static class ChunkResult {
+        int rows;
+        long millis;
+
+        public long getRowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000 / millis;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ben.pagination.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Filter on an attribute from or up to the value of the criteria field, both bounds included.</p>
+ * <em>A range is declared with two criteria fields on the same attribute, one for each bound, either can be left null</em>.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Between {
+    /** The attribute, {@code relation/attribute} through a relation. */
+    String value();
+
+    Bound bound();
+
+    enum Bound {
+        LOWER,
+        UPPER
+    }
+}
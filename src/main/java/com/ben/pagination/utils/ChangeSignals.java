@@ -0,0 +1,32 @@
+package com.ben.pagination.utils;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Signal the writes of the application to the change streams, see {@link ReactivePagingRepositoryCustom#changeStream}.</p>
+ * <em>A signal only makes the streams look for changes early, the writes of other instances or made behind the back
+ * of the application are picked up every {@code pagination.changes.poll-interval}</em>.
+ */
+@Component
+public class ChangeSignals {
+
+    private final Map<Class<?>, Sinks.Many<Long>> sinks = new ConcurrentHashMap<>();
+
+    public void emit(Class<?> entityClass) {
+        // A signal lost to a concurrent one is not missed, both wake the same streams
+        sink(entityClass).tryEmitNext(System.nanoTime());
+    }
+
+    public Flux<Long> signals(Class<?> entityClass) {
+        return sink(entityClass).asFlux();
+    }
+
+    private Sinks.Many<Long> sink(Class<?> entityClass) {
+        return sinks.computeIfAbsent(entityClass, c -> Sinks.many().multicast().directBestEffort());
+    }
+}
@@ -0,0 +1,72 @@
+package com.ben.pagination.utils;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>Total counts kept by entity and normalized criteria.</p>
+ * <em>Entries expire after {@code pagination.count.cache-ttl}, the least recently used ones are evicted above
+ * {@code pagination.count.cache-max-size}, and all the entries of an entity are dropped when it is written</em>.
+ */
+@Service
+public class CountCache {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private PagingRepositoryHelper helper;
+
+    private final Map<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped on every invalidation so a count started before a write is never stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public Long get(Class<?> entityClass, SearchCriteria crit, Supplier<Long> counter) {
+        CacheKey key = new CacheKey(entityClass, helper.criteriaKey(crit));
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.getExpiresAt() - System.nanoTime() > 0) {
+                return entry.getCount();
+            }
+        }
+        long startGeneration = generation.get();
+        Long count = counter.get();
+        synchronized (entries) {
+            if (startGeneration == generation.get()) {
+                entries.put(key, new CacheEntry(count, System.nanoTime() + properties.getCount().getCacheTtl().toNanos()));
+                Iterator<CacheKey> eldest = entries.keySet().iterator();
+                while (entries.size() > properties.getCount().getCacheMaxSize() && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return count;
+    }
+
+    public void invalidate(Class<?> entityClass) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.keySet().removeIf(key -> key.getEntityClass().equals(entityClass));
+        }
+    }
+
+    @Value
+    private static class CacheKey {
+        Class<?> entityClass;
+        String criteria;
+    }
+
+    @Value
+    private static class CacheEntry {
+        Long count;
+        long expiresAt;
+    }
+}
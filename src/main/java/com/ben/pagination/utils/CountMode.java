@@ -0,0 +1,15 @@
+package com.ben.pagination.utils;
+
+/**
+ * <p>How the total number of elements of a page is computed.</p>
+ */
+public enum CountMode {
+    /** A {@code count(*)} with the search predicates on every request. */
+    EXACT,
+    /** The exact count, kept per normalized criteria until it expires or the entity is written. */
+    CACHED,
+    /** The table row estimate of {@code information_schema} when there is no filter, the cached count otherwise. */
+    ESTIMATED,
+    /** No count at all, the next page is detected by fetching one more row. */
+    NONE
+}
@@ -0,0 +1,233 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <p>Compile the {@link Like}, {@link Equal}, {@link Between} and {@link In} annotations of a criteria class into its predicate,
+ * and its {@link Filter} fields, see {@link FilterCompiler}.</p>
+ * <em>A criteria class is compiled once, the getters of its fields are generated with {@link LambdaMetafactory} instead of being
+ * called by reflection. The attribute paths are split once, a query plan build only gets them from its root.
+ * The same fields are compiled into a filter of the {@link InMemoryTable} rows</em>.
+ */
+@Service
+public class CriteriaCompiler {
+
+    @Autowired
+    private PagingRepositoryHelper helper;
+
+    @Autowired
+    private FilterCompiler filterCompiler;
+
+    private final Map<Class<?>, CompiledCriteria<?>> compiled = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <U extends SearchCriteria> CompiledCriteria<U> compile(Class<U> criteriaClass) {
+        return (CompiledCriteria<U>) compiled.computeIfAbsent(criteriaClass, c -> doCompile((Class<U>) c));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <U extends SearchCriteria> CompiledCriteria<U> doCompile(Class<U> criteriaClass) {
+        List<FieldPredicate<U>> fields = new ArrayList<>();
+        List<FieldFilter<U>> filters = new ArrayList<>();
+        Map<String, Function<U, Filter>> filterTrees = new LinkedHashMap<>();
+        Set<String> likeAttributes = new HashSet<>();
+        ReflectionUtils.doWithFields(criteriaClass, field -> {
+            Like like = field.getAnnotation(Like.class);
+            Equal equal = field.getAnnotation(Equal.class);
+            Between between = field.getAnnotation(Between.class);
+            In in = field.getAnnotation(In.class);
+            if (like != null) {
+                Function<U, String> getter = getter(criteriaClass, field);
+                Function<Root<?>, Path<String>> path = path(like.value());
+                Function<U, String> pattern = c -> helper.surroundPercent(getter.apply(c).toLowerCase());
+                likeAttributes.add(like.value());
+                if (like.matchMode().isEmpty()) {
+                    fields.add((pred, cb, root, criteria) -> getter.apply(criteria) == null ? pred
+                            : cb.and(pred, cb.like(cb.lower(path.apply(root).as(String.class)), helper.value(cb, String.class, criteria, pattern))));
+                    filters.add((table, rows, criteria) -> getter.apply(criteria) == null
+                            || table.like(like.value(), getter.apply(criteria), MatchMode.CONTAINS, rows));
+                } else {
+                    Function<U, MatchMode> matchModeGetter = getter(criteriaClass, ReflectionUtils.findField(criteriaClass, like.matchMode(), MatchMode.class));
+                    fields.add((pred, cb, root, criteria) -> getter.apply(criteria) == null ? pred
+                            : cb.and(pred, helper.match(cb, path.apply(root), criteria, getter, matchModeGetter, pattern)));
+                    filters.add((table, rows, criteria) -> getter.apply(criteria) == null || table.like(like.value(), getter.apply(criteria),
+                            matchModeGetter.apply(criteria) != null ? matchModeGetter.apply(criteria) : MatchMode.CONTAINS, rows));
+                }
+            } else if (equal != null) {
+                Function<U, Object> getter = getter(criteriaClass, field);
+                Function<Root<?>, Path<Object>> path = path(equal.value());
+                Class<Object> type = (Class<Object>) ClassUtils.resolvePrimitiveIfNecessary(field.getType());
+                fields.add((pred, cb, root, criteria) -> getter.apply(criteria) == null ? pred
+                        : cb.and(pred, cb.equal(path.apply(root), helper.value(cb, type, criteria, getter))));
+                filters.add((table, rows, criteria) -> getter.apply(criteria) == null || table.equal(equal.value(), getter.apply(criteria), rows));
+            } else if (between != null) {
+                Function<U, Comparable> getter = getter(criteriaClass, field);
+                Function<Root<?>, Path<Comparable>> path = path(between.value());
+                Class<Comparable> type = (Class<Comparable>) ClassUtils.resolvePrimitiveIfNecessary(field.getType());
+                fields.add((pred, cb, root, criteria) -> {
+                    if (getter.apply(criteria) == null) {
+                        return pred;
+                    }
+                    Expression<Comparable> value = helper.value(cb, type, criteria, getter);
+                    return cb.and(pred, between.bound() == Between.Bound.LOWER
+                            ? cb.greaterThanOrEqualTo(path.apply(root), value) : cb.lessThanOrEqualTo(path.apply(root), value));
+                });
+                filters.add((table, rows, criteria) -> getter.apply(criteria) == null
+                        || table.compare(between.value(), getter.apply(criteria), between.bound() == Between.Bound.LOWER, rows));
+            } else if (in != null) {
+                Function<U, Collection> getter = getter(criteriaClass, field);
+                fields.add((pred, cb, root, criteria) -> helper.addSimpleListIn(pred, cb, root, criteria, in.value(), getter));
+                filters.add((table, rows, criteria) -> getter.apply(criteria) == null || table.in(in.value(), getter.apply(criteria), rows));
+            } else if (Filter.class.isAssignableFrom(field.getType())) {
+                Function<U, Filter> getter = getter(criteriaClass, field);
+                filterTrees.put(field.getName(), getter);
+                fields.add((pred, cb, root, criteria) -> getter.apply(criteria) == null ? pred
+                        : cb.and(pred, filterCompiler.toPredicate(cb, root, criteria, getter)));
+                filters.add((table, rows, criteria) -> getter.apply(criteria) == null
+                        || filterCompiler.filter(table, rows, table.getEntityClass(), getter.apply(criteria)));
+            }
+        });
+        return new CompiledCriteria<>(fields, filters, likeAttributes, filterTrees, filterCompiler);
+    }
+
+    /**
+     * <p>Resolve the path of {@code attribute} from a root, the {@code relation/attribute} form is split once when compiling.</p>
+     */
+    private static <V> Function<Root<?>, Path<V>> path(String attribute) {
+        String[] attrs = attribute.split("/");
+        if (attrs.length == 2) {
+            return root -> root.<Object>get(attrs[0]).get(attrs[1]);
+        }
+        return root -> root.get(attribute);
+    }
+
+    /**
+     * <p>Generate a {@link Function} calling the getter of {@code field}, as fast as a method reference.</p>
+     */
+    @SuppressWarnings("unchecked")
+    private static <U, V> Function<U, V> getter(Class<U> criteriaClass, Field field) {
+        PropertyDescriptor descriptor = field != null ? BeanUtils.getPropertyDescriptor(criteriaClass, field.getName()) : null;
+        if (descriptor == null || descriptor.getReadMethod() == null) {
+            throw new IllegalStateException("No getter for the criteria field " + criteriaClass.getSimpleName() + "." + (field != null ? field.getName() : null));
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(descriptor.getReadMethod());
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+            return (Function<U, V>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to compile the getter of " + criteriaClass.getSimpleName() + "." + field.getName(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FieldPredicate<U> {
+        Predicate apply(Predicate pred, CriteriaBuilder cb, Root root, U criteria);
+    }
+
+    @FunctionalInterface
+    private interface FieldFilter<U> {
+        /**
+         * @return {@code false} when the field can not be filtered in memory
+         */
+        boolean apply(InMemoryTable<?> table, BitSet rows, U criteria);
+    }
+
+    /**
+     * <p>The predicate of a criteria class, the conjunction of the predicates of its annotated fields.</p>
+     */
+    public static class CompiledCriteria<U extends SearchCriteria> {
+
+        private final FieldPredicate<U>[] fields;
+        private final FieldFilter<U>[] filters;
+        private final Set<String> likeAttributes;
+        private final Map<String, Function<U, Filter>> filterTrees;
+        private final FilterCompiler filterCompiler;
+
+        @SuppressWarnings("unchecked")
+        private CompiledCriteria(List<FieldPredicate<U>> fields, List<FieldFilter<U>> filters, Set<String> likeAttributes,
+                                 Map<String, Function<U, Filter>> filterTrees, FilterCompiler filterCompiler) {
+            this.fields = fields.toArray(new FieldPredicate[0]);
+            this.filters = filters.toArray(new FieldFilter[0]);
+            this.likeAttributes = Set.copyOf(likeAttributes);
+            this.filterTrees = filterTrees;
+            this.filterCompiler = filterCompiler;
+        }
+
+        /**
+         * <p>The shapes of the optimized {@link Filter} trees of {@code criteria}, two criteria with the same non null fields
+         * only run the same query when their trees have the same shape.</p>
+         */
+        public String getFilterShape(Class<?> entityClass, U criteria) {
+            if (criteria == null || filterTrees.isEmpty()) {
+                return "";
+            }
+            StringJoiner shapes = new StringJoiner(";");
+            filterTrees.forEach((name, getter) -> {
+                Filter filter = getter.apply(criteria);
+                if (filter != null) shapes.add(name + "=" + filterCompiler.shape(entityClass, filter));
+            });
+            return shapes.toString();
+        }
+
+        /**
+         * <p>The rows of {@code table} matching {@code criteria}, {@code null} when a field can not be filtered in memory.</p>
+         */
+        BitSet filter(U criteria, InMemoryTable<?> table) {
+            BitSet rows = table.all();
+            if (criteria == null) {
+                return rows;
+            }
+            for (FieldFilter<U> filter : filters) {
+                if (!filter.apply(table, rows, criteria)) {
+                    return null;
+                }
+            }
+            return rows;
+        }
+
+        public Set<String> getLikeAttributes() {
+            return likeAttributes;
+        }
+
+        public Predicate toPredicate(U criteria, CriteriaBuilder cb, Root<?> root) {
+            Predicate pred = cb.conjunction();
+            if (criteria == null) {
+                return pred;
+            }
+            for (FieldPredicate<U> field : fields) {
+                pred = field.apply(pred, cb, root, criteria);
+            }
+            return pred;
+        }
+    }
+}
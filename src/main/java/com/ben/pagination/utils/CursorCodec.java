@@ -0,0 +1,74 @@
+package com.ben.pagination.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Base64;
+
+@Service
+public class CursorCodec {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * <p>Encode the sort key and the id of the last row of a window into an url-safe continuation token.</p>
+     */
+    public String encode(Object sortValue, Object id) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.set("v", objectMapper.valueToTree(sortValue));
+        node.set("id", objectMapper.valueToTree(id));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(node));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode the continuation token", e);
+        }
+    }
+
+    /**
+     * <p>Decode a continuation token produced by {@link #encode(Object, Object)}.</p>
+     * <em>The values are kept as json until the types of the sorted field and of the id are known, see {@link #convert(JsonNode, Class)}</em>.
+     *
+     * @throws InvalidSearchException on a token which is not one, or was altered
+     */
+    public Cursor decode(String token) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(Base64.getUrlDecoder().decode(token));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.CURSOR, "Invalid continuation token", e);
+        }
+        if (node == null || !node.has("id") || node.get("id").isNull()) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.CURSOR, "Invalid continuation token");
+        }
+        return new Cursor(node.get("v"), node.get("id"));
+    }
+
+    /**
+     * @throws InvalidSearchException when the value of the token is not of {@code type}
+     */
+    public <V> V convert(JsonNode value, Class<V> type) {
+        try {
+            return value == null || value.isNull() ? null : objectMapper.treeToValue(value, type);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.CURSOR, "Invalid continuation token", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+        private JsonNode sortValue;
+        private JsonNode id;
+
+        public boolean isSortValueNull() {
+            return sortValue == null || sortValue.isNull();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ben.pagination.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * <p>A window of results returned by a keyset (seek) search.</p>
+ * <em>The {@code nextCursor} is an opaque token to send back to get the following window, it is {@code null} on the last one</em>.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+}
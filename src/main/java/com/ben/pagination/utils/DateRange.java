@@ -0,0 +1,108 @@
+package com.ben.pagination.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The half-open {@code [start, end)} range of dates a partial user input stands for.</p>
+ *
+ * <pre>
+ *   DateRange.parse("2023", false)                  = [2023-01-01, 2024-01-01)
+ *   DateRange.parse("12/2023", false)               = [2023-12-01, 2024-01-01)
+ *   DateRange.parse("05/12/2023", false)            = [2023-12-05, 2023-12-06)
+ *   DateRange.parse("05/12/2023 03:30:10 PM", true) = [2023-12-05T15:30:10, 2023-12-05T15:30:11)
+ *   DateRange.parse("05/12/2023 03:30 PM", true)    = null
+ *   DateRange.parse("05/12/2023 03 PM", true)       = null
+ *   DateRange.parse("5/12/2023", false)             = null
+ *   DateRange.parse("12/2023 10:00", true)          = null
+ *   DateRange.parse("05/12", false)                 = null
+ * </pre>
+ * <em>A range replaces the {@code LIKE} on the column formatted as {@code dd/MM/yyyy} ({@code dd/MM/yyyy hh:mm:ss AM}
+ * with a time), so only the inputs that match the same rows are parsed: the day and the month on two digits, the time
+ * after a full date, on twelve hours with its AM or PM. Any other input, {@code "5/12/2023"} matching the 5th, 15th and
+ * 25th, {@code "03:30"} matching the morning and the afternoon, is left to the {@code LIKE}. So is a time down to the hour
+ * or the minute, it matches nothing as the formatted column always has its seconds</em>.
+ */
+@Getter
+@AllArgsConstructor
+public class DateRange {
+
+    private static final Pattern PARTIAL_DATE = Pattern.compile(
+            "(?:(?:(\\d{2})/)?(\\d{2})/)?(\\d{4})(?:\\s+(\\d{2})(?::(\\d{2}))?(?::(\\d{2}))?\\s*([AaPp][Mm]))?");
+
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    /**
+     * @param withTime whether the column has a time, a time in the input is not parsed otherwise
+     * @return the range of {@code input}, {@code null} if it is not a partial {@code dd/MM/yyyy hh:mm:ss AM} date
+     */
+    public static DateRange parse(String input, boolean withTime) {
+        if (input == null) {
+            return null;
+        }
+        Matcher matcher = PARTIAL_DATE.matcher(input.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        if (matcher.group(4) != null && (!withTime || matcher.group(1) == null)) {
+            return null;
+        }
+        try {
+            int year = Integer.parseInt(matcher.group(3));
+            if (matcher.group(2) == null) {
+                LocalDateTime start = LocalDate.of(year, 1, 1).atStartOfDay();
+                return new DateRange(start, start.plusYears(1));
+            }
+            int month = Integer.parseInt(matcher.group(2));
+            if (matcher.group(1) == null) {
+                LocalDateTime start = LocalDate.of(year, month, 1).atStartOfDay();
+                return new DateRange(start, start.plusMonths(1));
+            }
+            LocalDate day = LocalDate.of(year, month, Integer.parseInt(matcher.group(1)));
+            if (matcher.group(4) == null) {
+                return new DateRange(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            }
+            int hour = Integer.parseInt(matcher.group(4));
+            if (hour < 1 || hour > 12 || matcher.group(5) == null || matcher.group(6) == null) {
+                return null;
+            }
+            hour = hour % 12 + ("pm".equalsIgnoreCase(matcher.group(7)) ? 12 : 0);
+            LocalDateTime start = day.atTime(hour, Integer.parseInt(matcher.group(5)), Integer.parseInt(matcher.group(6)));
+            return new DateRange(start, start.plusSeconds(1));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    public Object getStartAs(Class<?> type) {
+        return convert(start, type, false);
+    }
+
+    public Object getEndAs(Class<?> type) {
+        return convert(end, type, true);
+    }
+
+    private static Object convert(LocalDateTime value, Class<?> type, boolean ceiling) {
+        if (LocalDate.class.equals(type)) {
+            // A date column can not be compared to a time, the end of the range is rounded up to the next day
+            return ceiling && !LocalTime.MIDNIGHT.equals(value.toLocalTime()) ? value.toLocalDate().plusDays(1) : value.toLocalDate();
+        }
+        if (java.sql.Date.class.equals(type)) {
+            return java.sql.Date.valueOf((LocalDate) convert(value, LocalDate.class, ceiling));
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return Timestamp.valueOf(value);
+        }
+        return value;
+    }
+}
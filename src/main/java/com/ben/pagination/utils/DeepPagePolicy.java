@@ -0,0 +1,15 @@
+package com.ben.pagination.utils;
+
+/**
+ * <p>What to do with a page past {@code pagination.guardrails.max-offset}.</p>
+ */
+public enum DeepPagePolicy {
+    /**
+     * Seek the page from the last row of the page before it, as a keyset search does
+     */
+    SEEK,
+    /**
+     * Reject the page with an {@link InvalidSearchException}, the client has to page with a continuation token
+     */
+    REJECT
+}
@@ -0,0 +1,66 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.Entity;
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Copies of the results shared between the searches, so that every caller of a cache gets entities of its own.</p>
+ * <em>An entity is copied property by property into a new detached instance, its relations are shared with the original.
+ * The pages, windows, lists and maps holding the entities are copied, the other values are taken as immutable</em>.
+ */
+@Component
+public class EntitySnapshots {
+
+    @SuppressWarnings("unchecked")
+    public <V> V copy(V value) {
+        if (value == null) return null;
+        if (value instanceof Page) {
+            Page<?> page = (Page<?>) value;
+            return (V) new PageImpl<>(copyAll(page.getContent()), page.getPageable(), page.getTotalElements());
+        }
+        if (value instanceof Slice) {
+            Slice<?> slice = (Slice<?>) value;
+            return (V) new SliceImpl<>(copyAll(slice.getContent()), slice.getPageable(), slice.hasNext());
+        }
+        if (value instanceof CursorPage) {
+            CursorPage<?> window = (CursorPage<?>) value;
+            return (V) new CursorPage<>(copyAll(window.getContent()), window.getSize(), window.getNextCursor(), window.isHasNext());
+        }
+        if (value instanceof FacetedPage) {
+            FacetedPage<?> faceted = (FacetedPage<?>) value;
+            return (V) new FacetedPage<>(copy(faceted.getPage()), copy(faceted.getFacets()));
+        }
+        if (value instanceof List) {
+            return (V) copyAll((List<?>) value);
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, entry) -> copy.put(key, copy(entry)));
+            return (V) copy;
+        }
+        Class<?> valueClass = Hibernate.getClass(value);
+        if (valueClass.isAnnotationPresent(Entity.class)) {
+            Object copy = BeanUtils.instantiateClass(valueClass);
+            BeanUtils.copyProperties(Hibernate.unproxy(value), copy);
+            return (V) copy;
+        }
+        return value;
+    }
+
+    public <V> List<V> copyAll(List<V> values) {
+        List<V> copies = new ArrayList<>(values.size());
+        for (V value : values) copies.add(copy(value));
+        return copies;
+    }
+}
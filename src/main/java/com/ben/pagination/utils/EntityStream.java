@@ -0,0 +1,63 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+import java.io.Closeable;
+
+/**
+ * <p>A forward only cursor over a search, on an entity manager of its own so it can be read from any thread.</p>
+ * <em>The calls must not overlap, as the calls of a {@code Flux.generate} generator, and the persistence context is
+ * cleared every {@code clearEvery} rows</em>.
+ */
+class EntityStream<T> implements Closeable {
+
+    private final EntityManager em;
+    private final int clearEvery;
+    private ScrollableResults<T> results;
+    private long count;
+
+    EntityStream(EntityManager em, int clearEvery) {
+        this.em = em;
+        this.clearEvery = clearEvery;
+    }
+
+    EntityManager getEntityManager() {
+        return em;
+    }
+
+    @SuppressWarnings("unchecked")
+    void open(TypedQuery<T> typedQuery, int fetchSize) {
+        em.getTransaction().begin();
+        org.hibernate.query.Query<T> query = typedQuery.unwrap(org.hibernate.query.Query.class);
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        results = query.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    boolean next() {
+        if (count > 0 && count % clearEvery == 0) {
+            em.clear();
+        }
+        boolean hasNext = results.next();
+        if (hasNext) count++;
+        return hasNext;
+    }
+
+    T get() {
+        return results.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (results != null) results.close();
+            // Nothing was written, the transaction only kept the connection for the cursor
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ben.pagination.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Filter on an attribute equal to the value of the criteria field.</p>
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Equal {
+    /** The attribute, {@code relation/attribute} through a relation. */
+    String value();
+}
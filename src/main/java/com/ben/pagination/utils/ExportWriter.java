@@ -0,0 +1,85 @@
+package com.ben.pagination.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Write exported rows one by one to an output stream, nothing but the current row is kept in memory.</p>
+ * <em>The csv header is taken from the properties of the first row</em>.
+ */
+public class ExportWriter implements Closeable {
+
+    private final ObjectMapper objectMapper;
+    private final ExportFormat format;
+    private final Writer writer;
+    private List<String> header;
+
+    public ExportWriter(ObjectMapper objectMapper, ExportFormat format, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    public void write(Object row) {
+        try {
+            if (format == ExportFormat.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                return;
+            }
+            Map<String, Object> values = objectMapper.convertValue(row, new TypeReference<LinkedHashMap<String, Object>>() {});
+            if (header == null) {
+                header = new ArrayList<>(values.keySet());
+                writeCsvLine(header);
+            }
+            List<Object> line = new ArrayList<>(header.size());
+            for (String column : header) {
+                line.add(values.get(column));
+            }
+            writeCsvLine(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvLine(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(toCsvCell(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private String toCsvCell(Object value) throws JsonProcessingException {
+        if (value == null) {
+            return "";
+        }
+        String cell = value instanceof Map || value instanceof Collection ? objectMapper.writeValueAsString(value) : String.valueOf(value);
+        if (cell.indexOf(',') > -1 || cell.indexOf('"') > -1 || cell.indexOf('\n') > -1 || cell.indexOf('\r') > -1) {
+            return '"' + cell.replace("\"", "\"\"") + '"';
+        }
+        return cell;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
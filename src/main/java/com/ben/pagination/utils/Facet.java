@@ -0,0 +1,87 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>What a search result is counted by: a field {@link SortRegistry} knows ({@code email}, {@code course.name}) or a
+ * {@link Transform} of it ({@code domain(email)}, {@code year(birthDate)}).</p>
+ */
+@Getter
+@AllArgsConstructor
+public class Facet {
+
+    private static final Pattern TRANSFORM = Pattern.compile("(\\w+)\\((.+)\\)");
+
+    private final String key;
+    private final SortRegistry.SortField field;
+    private final Transform transform;
+
+    /**
+     * @param fields the fields of the entity, see {@link SortRegistry#getSortFields}
+     * @throws InvalidSearchException on an unknown field or transform
+     */
+    public static Facet parse(String key, Map<String, SortRegistry.SortField> fields) {
+        String trimmed = key.trim();
+        Matcher matcher = TRANSFORM.matcher(trimmed);
+        Transform transform = null;
+        String fieldName = trimmed;
+        if (matcher.matches()) {
+            try {
+                transform = Transform.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSearchException(InvalidSearchException.Reason.FACET, "Unknown facet function " + matcher.group(1) + ", the functions are " + Arrays.toString(Transform.values()));
+            }
+            fieldName = matcher.group(2).trim();
+        }
+        SortRegistry.SortField field = fields.get(fieldName);
+        if (field == null) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.FACET, "Unable to count by " + fieldName + ", the fields are " + fields.keySet());
+        }
+        return new Facet(trimmed, field, transform);
+    }
+
+    public Expression<?> toExpression(CriteriaBuilder cb, Path<?> path) {
+        return transform == null ? path : transform.apply(cb, path);
+    }
+
+    public enum Transform {
+        /** The part of an email after the {@code @}. */
+        DOMAIN {
+            @Override
+            Expression<?> apply(CriteriaBuilder cb, Path<?> path) {
+                Expression<String> value = path.as(String.class);
+                return cb.substring(value, cb.sum(cb.locate(value, "@"), 1));
+            }
+        },
+        LOWER {
+            @Override
+            Expression<?> apply(CriteriaBuilder cb, Path<?> path) {
+                return cb.lower(path.as(String.class));
+            }
+        },
+        YEAR {
+            @Override
+            Expression<?> apply(CriteriaBuilder cb, Path<?> path) {
+                return cb.function("year", Integer.class, path);
+            }
+        },
+        MONTH {
+            @Override
+            Expression<?> apply(CriteriaBuilder cb, Path<?> path) {
+                return cb.function("month", Integer.class, path);
+            }
+        };
+
+        abstract Expression<?> apply(CriteriaBuilder cb, Path<?> path);
+    }
+}
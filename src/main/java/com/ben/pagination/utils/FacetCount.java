@@ -0,0 +1,12 @@
+package com.ben.pagination.utils;
+
+import lombok.Value;
+
+/**
+ * <p>The number of results with a value of a {@link Facet}.</p>
+ */
+@Value
+public class FacetCount {
+    Object value;
+    long count;
+}
@@ -0,0 +1,18 @@
+package com.ben.pagination.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A page of results and the counts of all the results by facet, the most frequent value first.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class FacetedPage<T> {
+    private Page<T> page;
+    private Map<String, List<FacetCount>> facets;
+}
@@ -0,0 +1,36 @@
+package com.ben.pagination.utils;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * <p>A boolean filter tree of a criteria: a group ({@code and}, {@code or}, {@code not}) or a condition on a field
+ * {@link SortRegistry} knows, see {@link FilterCompiler}.</p>
+ * <pre>
+ *   {"or": [{"field": "fullName", "op": "LIKE", "value": "ben"},
+ *           {"and": [{"field": "email", "op": "IN", "values": ["a@x.io", "b@x.io"]},
+ *                    {"not": {"field": "email", "op": "NULL"}}]}]}
+ * </pre>
+ * <em>{@link Operator#BETWEEN} reads its lower and upper bounds from {@code values}, either can be null</em>.
+ */
+@Data
+public class Filter {
+    private List<Filter> and;
+    private List<Filter> or;
+    private Filter not;
+
+    private String field;
+    private Operator op;
+    private Object value;
+    private List<Object> values;
+
+    public enum Operator {
+        /** The field contains the value, ignoring case. */
+        LIKE,
+        EQUAL,
+        IN,
+        BETWEEN,
+        NULL
+    }
+}
@@ -0,0 +1,509 @@
+package com.ben.pagination.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Compile the {@link Filter} tree of a criteria into a single predicate, after optimizing it.</p>
+ * <em>The nested groups of the same kind are flattened, the constants are folded (an empty {@code IN}, a {@code NULL} on a
+ * mandatory attribute, crossed bounds...), the equalities on a field are merged into one {@code IN} (its union in an
+ * {@code OR}, its intersection in an {@code AND}), the bounds on a field are merged into one range, and the conditions
+ * most likely to use an index come first. The shape of the optimized tree is part of the {@link QueryShape}, its values
+ * are the parameters of the plan</em>.
+ */
+@Service
+public class FilterCompiler {
+
+    @Autowired
+    private PagingRepositoryHelper helper;
+
+    @Autowired
+    private SortRegistry sortRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The optimized tree of each filter being searched, read again to bind the values of a plan
+    private final Cache<Filter, Optimized> optimized = Caffeine.newBuilder().weakKeys().maximumSize(10_000).build();
+
+    /**
+     * @throws InvalidSearchException on a malformed filter
+     */
+    Optimized optimize(Class<?> entityClass, Filter filter) {
+        Optimized tree = optimized.get(filter, f -> new Optimized(entityClass, simplify(parse(entityClass, f))));
+        return tree.getEntityClass() == entityClass ? tree : new Optimized(entityClass, simplify(parse(entityClass, filter)));
+    }
+
+    public String shape(Class<?> entityClass, Filter filter) {
+        return optimize(entityClass, filter).getShape();
+    }
+
+    public <U extends SearchCriteria> Predicate toPredicate(CriteriaBuilder cb, Root<?> root, U criteria, Function<U, Filter> getter) {
+        Class<?> entityClass = root.getJavaType();
+        Function<U, Optimized> tree = c -> optimize(entityClass, getter.apply(c));
+        return build(tree.apply(criteria).getRoot(), cb, root, criteria, tree, new int[1]);
+    }
+
+    /**
+     * <p>Keep the {@code rows} of {@code table} matching {@code filter}.</p>
+     *
+     * @return {@code false} when it can not be done in memory
+     */
+    boolean filter(InMemoryTable<?> table, BitSet rows, Class<?> entityClass, Filter filter) {
+        BitSet matching = matching(table, optimize(entityClass, filter).getRoot());
+        if (matching == null) return false;
+        rows.and(matching);
+        return true;
+    }
+
+    private Node parse(Class<?> entityClass, Filter filter) {
+        if (filter == null) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "A filter group can not hold a null filter");
+        }
+        boolean condition = filter.getField() != null || filter.getOp() != null;
+        int parts = (filter.getAnd() != null ? 1 : 0) + (filter.getOr() != null ? 1 : 0) + (filter.getNot() != null ? 1 : 0) + (condition ? 1 : 0);
+        if (parts != 1) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "A filter is either an and, an or, a not or a condition on a field");
+        }
+        if (filter.getAnd() != null) {
+            return Node.group(Kind.AND, filter.getAnd().stream().map(child -> parse(entityClass, child)).collect(Collectors.toList()));
+        }
+        if (filter.getOr() != null) {
+            return Node.group(Kind.OR, filter.getOr().stream().map(child -> parse(entityClass, child)).collect(Collectors.toList()));
+        }
+        if (filter.getNot() != null) {
+            return Node.group(Kind.NOT, List.of(parse(entityClass, filter.getNot())));
+        }
+
+        Map<String, SortRegistry.SortField> fields = sortRegistry.getSortFields(entityClass);
+        SortRegistry.SortField field = fields.get(filter.getField());
+        if (field == null) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "Unable to filter on " + filter.getField() + ", the fields are " + fields.keySet());
+        }
+        if (filter.getOp() == null) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "No operator on " + filter.getField() + ", the operators are " + List.of(Filter.Operator.values()));
+        }
+        SingularAttribute<?, ?> attribute = getAttribute(entityClass, field);
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(attribute.getJavaType());
+        // A left joined attribute is null when the relation is
+        boolean optional = field.getJoin() != null || attribute.isOptional();
+        switch (filter.getOp()) {
+            case LIKE:
+                if (type != String.class || !(filter.getValue() instanceof String)) {
+                    throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "LIKE compares a string field to a string value, not " + filter.getField() + " to " + filter.getValue());
+                }
+                return new Node(Kind.LIKE, field, type, optional, List.of(filter.getValue()), List.of());
+            case EQUAL:
+                if (filter.getValue() == null) {
+                    return new Node(Kind.NULL, field, type, optional, List.of(), List.of());
+                }
+                return new Node(Kind.EQUAL, field, type, optional, List.of(convert(filter.getValue(), type, filter)), List.of());
+            case IN:
+                if (filter.getValues() == null) {
+                    throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "IN reads its values from values on " + filter.getField());
+                }
+                // A null is never in a list
+                List<Object> values = filter.getValues().stream().filter(value -> value != null)
+                        .map(value -> convert(value, type, filter)).distinct().collect(Collectors.toList());
+                return new Node(Kind.IN, field, type, optional, values, List.of());
+            case BETWEEN:
+                if (filter.getValues() == null || filter.getValues().size() != 2) {
+                    throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "BETWEEN reads its lower and upper bounds from values on " + filter.getField());
+                }
+                List<Object> bounds = new ArrayList<>(2);
+                for (Object bound : filter.getValues()) bounds.add(bound == null ? null : convert(bound, type, filter));
+                return new Node(Kind.BETWEEN, field, type, optional, bounds, List.of());
+            default:
+                return new Node(Kind.NULL, field, type, optional, List.of(), List.of());
+        }
+    }
+
+    private SingularAttribute<?, ?> getAttribute(Class<?> entityClass, SortRegistry.SortField field) {
+        EntityType<?> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+        if (field.getJoin() != null) {
+            Attribute<?, ?> join = entityType.getAttribute(field.getJoin());
+            entityType = entityManagerFactory.getMetamodel().entity(join.getJavaType());
+        }
+        return entityType.getSingularAttribute(field.getAttribute());
+    }
+
+    private Object convert(Object value, Class<?> type, Filter filter) {
+        try {
+            return objectMapper.convertValue(value, type);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.FILTER, "Unable to compare " + filter.getField() + " to " + value, e);
+        }
+    }
+
+    /**
+     * <p>Simplify a tree bottom up, the children of a group are simplified before it.</p>
+     */
+    private Node simplify(Node node) {
+        switch (node.getKind()) {
+            case AND:
+            case OR:
+                return simplifyGroup(node.getKind(), node.getChildren().stream().map(this::simplify).collect(Collectors.toList()));
+            case NOT:
+                return negate(simplify(node.getChildren().get(0)));
+            case IN:
+                return values(node, node.getValues());
+            case BETWEEN:
+                return range(node, node.getValues().get(0), node.getValues().get(1));
+            case NULL:
+                return node.isOptional() ? node : Node.FALSE;
+            case LIKE:
+                // '%%' matches any value, not a null
+                return ((String) node.getValues().get(0)).isEmpty() ? negate(simplify(Node.nulls(node))) : node;
+            default:
+                return node;
+        }
+    }
+
+    private Node negate(Node node) {
+        switch (node.getKind()) {
+            case TRUE:
+                return Node.FALSE;
+            case FALSE:
+                return Node.TRUE;
+            case NOT:
+                return node.getChildren().get(0);
+            default:
+                return Node.group(Kind.NOT, List.of(node));
+        }
+    }
+
+    private Node simplifyGroup(Kind kind, List<Node> children) {
+        Node absorbing = kind == Kind.AND ? Node.FALSE : Node.TRUE;
+        Node neutral = kind == Kind.AND ? Node.TRUE : Node.FALSE;
+
+        // a and (b and c) is a and b and c
+        List<Node> flat = new ArrayList<>();
+        for (Node child : children) {
+            if (child.getKind() == kind) {
+                flat.addAll(child.getChildren());
+            } else {
+                flat.add(child);
+            }
+        }
+
+        Set<Node> merged = new LinkedHashSet<>(merge(kind, flat));
+        if (merged.contains(absorbing)) {
+            return absorbing;
+        }
+        merged.remove(neutral);
+        if (merged.isEmpty()) {
+            return neutral;
+        }
+        if (merged.size() == 1) {
+            return merged.iterator().next();
+        }
+        List<Node> ordered = new ArrayList<>(merged);
+        ordered.sort(Comparator.comparingInt(this::rank));
+        return Node.group(kind, ordered);
+    }
+
+    /**
+     * <p>Merge the equalities on a field into one {@code IN}, and in an {@code AND} the bounds on a field into one range.</p>
+     */
+    @SuppressWarnings("unchecked")
+    private List<Node> merge(Kind kind, List<Node> children) {
+        Map<SortRegistry.SortField, Node> first = new LinkedHashMap<>();
+        Map<SortRegistry.SortField, Set<Object>> values = new LinkedHashMap<>();
+        Map<SortRegistry.SortField, Comparable<Object>[]> ranges = new LinkedHashMap<>();
+        for (Node child : children) {
+            if (child.getKind() == Kind.EQUAL || child.getKind() == Kind.IN) {
+                Set<Object> known = values.get(child.getField());
+                if (known == null) {
+                    first.putIfAbsent(child.getField(), child);
+                    values.put(child.getField(), new LinkedHashSet<>(child.getValues()));
+                } else if (kind == Kind.OR) {
+                    known.addAll(child.getValues());
+                } else {
+                    known.retainAll(child.getValues());
+                }
+            } else if (child.getKind() == Kind.BETWEEN && kind == Kind.AND) {
+                Comparable<Object>[] range = ranges.get(child.getField());
+                Comparable<Object> lower = (Comparable<Object>) child.getValues().get(0);
+                Comparable<Object> upper = (Comparable<Object>) child.getValues().get(1);
+                if (range == null) {
+                    ranges.put(child.getField(), new Comparable[]{lower, upper});
+                } else {
+                    if (lower != null && (range[0] == null || lower.compareTo(range[0]) > 0)) range[0] = lower;
+                    if (upper != null && (range[1] == null || upper.compareTo(range[1]) < 0)) range[1] = upper;
+                }
+            }
+        }
+
+        List<Node> merged = new ArrayList<>(children.size());
+        Set<SortRegistry.SortField> done = new LinkedHashSet<>();
+        for (Node child : children) {
+            if (child.getKind() == Kind.EQUAL || child.getKind() == Kind.IN) {
+                if (done.add(child.getField())) merged.add(values(first.get(child.getField()), values.get(child.getField())));
+            } else if (child.getKind() == Kind.BETWEEN && kind == Kind.AND) {
+                Comparable<Object>[] range = ranges.get(child.getField());
+                if (done.add(child.getField())) merged.add(range(child, range[0], range[1]));
+            } else {
+                merged.add(child);
+            }
+        }
+        return merged;
+    }
+
+    private Node values(Node field, Collection<Object> values) {
+        if (values.isEmpty()) {
+            return Node.FALSE;
+        }
+        if (values.size() == 1) {
+            return new Node(Kind.EQUAL, field.getField(), field.getType(), field.isOptional(), List.copyOf(values), List.of());
+        }
+        return new Node(Kind.IN, field.getField(), field.getType(), field.isOptional(), List.copyOf(values), List.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node range(Node field, Object lower, Object upper) {
+        if (lower == null && upper == null) {
+            return Node.TRUE;
+        }
+        if (lower != null && upper != null) {
+            int compared = ((Comparable<Object>) lower).compareTo(upper);
+            if (compared > 0) return Node.FALSE;
+            if (compared == 0) return values(field, List.of(lower));
+        }
+        return new Node(Kind.BETWEEN, field.getField(), field.getType(), field.isOptional(), Arrays.asList(lower, upper), List.of());
+    }
+
+    /**
+     * <p>The conditions an index can answer come first, the rows they leave are the only ones the others are evaluated on.</p>
+     */
+    private int rank(Node node) {
+        switch (node.getKind()) {
+            case EQUAL:
+            case IN:
+                if (node.getField().isId()) return 0;
+                return node.getField().isIndexed() ? (node.getKind() == Kind.EQUAL ? 1 : 2) : 5;
+            case BETWEEN:
+                return node.getField().isIndexed() ? 3 : 6;
+            case NULL:
+                return node.getField().isIndexed() ? 4 : 6;
+            case LIKE:
+                return 7;
+            case NOT:
+                return 8;
+            case AND:
+                // As selective as its most selective condition
+                return node.getChildren().stream().mapToInt(this::rank).min().orElse(0);
+            case OR:
+                // As selective as its least selective branch
+                return node.getChildren().stream().mapToInt(this::rank).max().orElse(0);
+            default:
+                return 0;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <U extends SearchCriteria> Predicate build(Node node, CriteriaBuilder cb, Root<?> root, U criteria, Function<U, Optimized> tree, int[] leaf) {
+        switch (node.getKind()) {
+            case TRUE:
+                return cb.conjunction();
+            case FALSE:
+                return cb.disjunction();
+            case AND:
+            case OR:
+                Predicate[] children = new Predicate[node.getChildren().size()];
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = build(node.getChildren().get(i), cb, root, criteria, tree, leaf);
+                }
+                return node.getKind() == Kind.AND ? cb.and(children) : cb.or(children);
+            case NOT:
+                Node negated = node.getChildren().get(0);
+                if (negated.getKind() == Kind.NULL) {
+                    leaf[0]++;
+                    return cb.isNotNull(sortRegistry.getPath(root, negated.getField()));
+                }
+                return cb.not(build(negated, cb, root, criteria, tree, leaf));
+            default:
+                break;
+        }
+
+        int index = leaf[0]++;
+        Path path = sortRegistry.getPath(root, node.getField());
+        Class type = node.getType();
+        Function<U, List<Object>> values = c -> tree.apply(c).getLeaves().get(index).getValues();
+        switch (node.getKind()) {
+            case LIKE:
+                Expression<String> pattern = helper.value(cb, String.class, criteria,
+                        c -> helper.surroundPercent(helper.escapeLike(((String) values.apply(c).get(0)).toLowerCase())));
+                return cb.like(cb.lower(path.as(String.class)), pattern, '\\');
+            case EQUAL:
+                return cb.equal(path, helper.value(cb, type, criteria, c -> values.apply(c).get(0)));
+            case IN:
+                return path.in((Expression) helper.value(cb, Collection.class, criteria, c -> values.apply(c)));
+            case BETWEEN:
+                Expression lower = node.getValues().get(0) != null ? helper.value(cb, type, criteria, c -> values.apply(c).get(0)) : null;
+                Expression upper = node.getValues().get(1) != null ? helper.value(cb, type, criteria, c -> values.apply(c).get(1)) : null;
+                if (lower != null && upper != null) return cb.between(path, lower, upper);
+                return lower != null ? cb.greaterThanOrEqualTo(path, lower) : cb.lessThanOrEqualTo(path, upper);
+            default:
+                return cb.isNull(path);
+        }
+    }
+
+    /**
+     * @return the matching rows, {@code null} when the tree can not be evaluated in memory
+     */
+    private BitSet matching(InMemoryTable<?> table, Node node) {
+        BitSet rows;
+        switch (node.getKind()) {
+            case TRUE:
+                return table.all();
+            case FALSE:
+                return new BitSet();
+            case AND:
+                rows = table.all();
+                for (Node child : node.getChildren()) {
+                    BitSet matching = matching(table, child);
+                    if (matching == null) return null;
+                    rows.and(matching);
+                }
+                return rows;
+            case OR:
+                rows = new BitSet();
+                for (Node child : node.getChildren()) {
+                    BitSet matching = matching(table, child);
+                    if (matching == null) return null;
+                    rows.or(matching);
+                }
+                return rows;
+            case NOT:
+            case NULL:
+                // The three-valued logic of SQL is not mirrored in memory
+                return null;
+            default:
+                break;
+        }
+        if (node.getField().getJoin() != null) {
+            return null;
+        }
+        String attribute = node.getField().getAttribute();
+        rows = table.all();
+        List<Object> values = node.getValues();
+        boolean filtered;
+        switch (node.getKind()) {
+            case LIKE:
+                filtered = table.like(attribute, (String) values.get(0), MatchMode.CONTAINS, rows);
+                break;
+            case EQUAL:
+                filtered = table.equal(attribute, values.get(0), rows);
+                break;
+            case IN:
+                filtered = table.in(attribute, values, rows);
+                break;
+            default:
+                filtered = (values.get(0) == null || table.compare(attribute, values.get(0), true, rows))
+                        && (values.get(1) == null || table.compare(attribute, values.get(1), false, rows));
+        }
+        return filtered ? rows : null;
+    }
+
+    enum Kind {
+        TRUE, FALSE, AND, OR, NOT, LIKE, EQUAL, IN, BETWEEN, NULL
+    }
+
+    @Value
+    static class Node {
+        static final Node TRUE = group(Kind.TRUE, List.of());
+        static final Node FALSE = group(Kind.FALSE, List.of());
+
+        Kind kind;
+        SortRegistry.SortField field;
+        Class<?> type;
+        boolean optional;
+        List<Object> values;
+        List<Node> children;
+
+        static Node group(Kind kind, List<Node> children) {
+            return new Node(kind, null, null, false, List.of(), children);
+        }
+
+        static Node nulls(Node field) {
+            return new Node(Kind.NULL, field.getField(), field.getType(), field.isOptional(), List.of(), List.of());
+        }
+
+        boolean isLeaf() {
+            return field != null;
+        }
+
+        String shape() {
+            switch (kind) {
+                case TRUE:
+                case FALSE:
+                    return kind.name().toLowerCase(Locale.ROOT);
+                case AND:
+                case OR:
+                case NOT:
+                    return kind.name().toLowerCase(Locale.ROOT) + children.stream().map(Node::shape).collect(Collectors.joining(",", "(", ")"));
+                case BETWEEN:
+                    return field.getKey() + "[" + (values.get(0) != null ? "?" : "") + "," + (values.get(1) != null ? "?" : "") + "]";
+                default:
+                    return field.getKey() + " " + kind.name().toLowerCase(Locale.ROOT);
+            }
+        }
+    }
+
+    /**
+     * <p>An optimized tree, its leaves in the order the predicate binds them.</p>
+     */
+    @Getter
+    static class Optimized {
+        private final Class<?> entityClass;
+        private final Node root;
+        private final List<Node> leaves = new ArrayList<>();
+        private final String shape;
+
+        Optimized(Class<?> entityClass, Node root) {
+            this.entityClass = entityClass;
+            this.root = root;
+            collect(root);
+            this.shape = root.shape();
+        }
+
+        private void collect(Node node) {
+            if (node.isLeaf()) {
+                leaves.add(node);
+            }
+            node.getChildren().forEach(this::collect);
+        }
+    }
+}
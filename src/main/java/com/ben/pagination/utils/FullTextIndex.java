@@ -0,0 +1,24 @@
+package com.ben.pagination.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Declare a MySQL FULLTEXT index on an entity table, JPA {@code @Index} only describes B-tree indexes.</p>
+ * <em>Missing indexes are created at startup by {@link FullTextIndexInitializer}</em>.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(FullTextIndexes.class)
+public @interface FullTextIndex {
+    String name();
+
+    /**
+     * The attribute names, comma separated, in the order of the {@code match(...)} of the queries. As in the {@code @Index}
+     * of the entities they are the names of the fields, the physical column names are resolved when the index is created.
+     */
+    String columnList();
+}
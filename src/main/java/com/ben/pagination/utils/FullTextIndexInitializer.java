@@ -0,0 +1,86 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Create the {@link FullTextIndex} declared on the entities when they are missing, on MySQL only.</p>
+ */
+@Slf4j
+@Component
+public class FullTextIndexInitializer {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissingIndexes() throws MetaDataAccessException {
+        if (!properties.getFullText().isCreateIndexes()) {
+            return;
+        }
+        String databaseName = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+        if (!"MySQL".equalsIgnoreCase(databaseName)) {
+            return;
+        }
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            FullTextIndex[] indexes = entityType.getJavaType().getAnnotationsByType(FullTextIndex.class);
+            if (indexes.length == 0) {
+                continue;
+            }
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getRuntimeMetamodels().getMappingMetamodel().getEntityDescriptor(entityType.getJavaType());
+            String tableName = persister.getTableName();
+            for (FullTextIndex index : indexes) {
+                String columnList = getColumnList(persister, index);
+                Integer existing = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?",
+                        Integer.class, tableName, index.name());
+                if (existing == null || existing == 0) {
+                    log.info("Creating FULLTEXT index {} on {} ({})", index.name(), tableName, columnList);
+                    jdbcTemplate.execute("ALTER TABLE " + tableName + " ADD FULLTEXT INDEX " + index.name() + " (" + columnList + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>The columns of the attributes of {@code index}, as the naming strategy maps them.</p>
+     */
+    private String getColumnList(AbstractEntityPersister persister, FullTextIndex index) {
+        return Arrays.stream(index.columnList().split(","))
+                .map(String::trim)
+                .map(attribute -> {
+                    String[] columns;
+                    try {
+                        columns = persister.getPropertyColumnNames(attribute);
+                    } catch (RuntimeException e) {
+                        throw new IllegalStateException("Unknown attribute " + attribute + " in the FULLTEXT index " + index.name(), e);
+                    }
+                    if (columns.length != 1) {
+                        throw new IllegalStateException("The FULLTEXT index " + index.name() + " needs a single column attribute, not " + attribute);
+                    }
+                    return columns[0];
+                })
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,17 @@
+package com.ben.pagination.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Filter on an attribute in the collection of the criteria field, see {@link PagingRepositoryHelper#addSimpleListIn}.</p>
+ * <em>An empty collection matches nothing, {@code relation/attribute} joins the relation</em>.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface In {
+    /** The attribute, {@code relation/attribute} through a relation. */
+    String value();
+}
@@ -0,0 +1,208 @@
+package com.ben.pagination.utils;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * <p>Keep the small and hot entities of {@code pagination.in-memory.entities} in memory, their counts and searches are then
+ * answered without querying the database, see {@link InMemoryTable}.</p>
+ * <em>A table is loaded when the application is ready, unless it has more than {@code pagination.in-memory.max-rows} rows.
+ * The writes of the application are written through, and every {@code pagination.in-memory.reload-interval} the rows
+ * inserted behind its back are appended. A change in the row count means rows were deleted, the table is then reloaded.
+ * The rows updated behind its back are only seen by a reload. The entities written through are copied, see {@link EntitySnapshots},
+ * so the table never holds an instance of a persistence context</em>.
+ */
+@Slf4j
+@Service
+public class InMemorySearchEngine {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntitySnapshots snapshots;
+
+    // The attributes read by a like criteria of each registered entity, indexed by trigram
+    private final Map<Class<?>, Set<String>> registered = new ConcurrentHashMap<>();
+    private final Map<Class<?>, InMemoryTable<?>> tables = new ConcurrentHashMap<>();
+    // Moved by the writes, a load during a write is done again
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reloader;
+
+    public boolean isEnabled(Class<?> entityClass) {
+        return properties.getInMemory().getEntities().contains(entityClass);
+    }
+
+    /**
+     * <p>Register an entity of {@code pagination.in-memory.entities}, the others are ignored.</p>
+     *
+     * @param likeAttributes the string attributes its criteria match with a like
+     */
+    public void register(Class<?> entityClass, Set<String> likeAttributes) {
+        if (!isEnabled(entityClass)) return;
+        registered.merge(entityClass, new HashSet<>(likeAttributes), (known, added) -> {
+            known.addAll(added);
+            return known;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (registered.isEmpty()) return;
+        registered.keySet().forEach(this::reload);
+        long interval = properties.getInMemory().getReloadInterval().toMillis();
+        reloader = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("pagination-in-memory-"));
+        reloader.scheduleWithFixedDelay(() -> registered.keySet().forEach(this::reloadDelta), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    protected void stop() {
+        if (reloader != null) reloader.shutdownNow();
+    }
+
+    /**
+     * @return the table of {@code entityClass}, {@code null} when it is not kept in memory
+     */
+    @SuppressWarnings("unchecked")
+    <T> InMemoryTable<T> getTable(Class<T> entityClass) {
+        return (InMemoryTable<T>) tables.get(entityClass);
+    }
+
+    /**
+     * <p>Write saved entities through to the table of their class, if it is kept in memory.</p>
+     * <em>Detached copies are written, a later change of the saved entities is not seen until it is saved again</em>.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void write(Class<T> entityClass, Collection<T> entities) {
+        if (!registered.containsKey(entityClass)) return;
+        generation(entityClass).incrementAndGet();
+        List<T> copies = snapshots.copyAll(new ArrayList<>(entities));
+        tables.computeIfPresent(entityClass, (c, table) -> ((InMemoryTable<T>) table).with(copies));
+    }
+
+    /**
+     * <p>Load the whole table of {@code entityClass}, it is dropped when it has grown past {@code pagination.in-memory.max-rows}.</p>
+     */
+    public void reload(Class<?> entityClass) {
+        if (!registered.containsKey(entityClass)) return;
+        try {
+            load(entityClass);
+        } catch (RuntimeException e) {
+            log.warn("Unable to load {} in memory, it is searched in the database", entityClass.getSimpleName(), e);
+            tables.remove(entityClass);
+        }
+    }
+
+    private <T> void load(Class<T> entityClass) {
+        EntityType<T> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            long count = em.createQuery("select count(e) from " + entityType.getName() + " e", Long.class).getSingleResult();
+            if (count > properties.getInMemory().getMaxRows()) {
+                log.warn("{} has {} rows, more than pagination.in-memory.max-rows, it is searched in the database", entityType.getName(), count);
+                tables.remove(entityClass);
+                return;
+            }
+            long generation;
+            List<T> rows;
+            do {
+                generation = generation(entityClass).get();
+                rows = em.createQuery("select e from " + entityType.getName() + " e", entityClass)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultList();
+                em.clear();
+            } while (generation != generation(entityClass).get());
+            tables.put(entityClass, newTable(entityType, rows));
+            log.info("{} rows of {} loaded in memory", rows.size(), entityType.getName());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * <p>Append the rows inserted since the last load, reload the table when rows were deleted.</p>
+     */
+    private void reloadDelta(Class<?> entityClass) {
+        try {
+            appendDelta(entityClass);
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh {} in memory", entityClass.getSimpleName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void appendDelta(Class<T> entityClass) {
+        InMemoryTable<T> table = getTable(entityClass);
+        if (table == null || table.getMaxId() == null) {
+            reload(entityClass);
+            return;
+        }
+        EntityType<T> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+        String idName = entityType.getId(entityType.getIdType().getJavaType()).getName();
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            long count = em.createQuery("select count(e) from " + entityType.getName() + " e", Long.class).getSingleResult();
+            List<T> inserted = em.createQuery("select e from " + entityType.getName() + " e where e." + idName + " > :maxId", entityClass)
+                    .setParameter("maxId", table.getMaxId())
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultList();
+            if (count != table.size() + inserted.size()) {
+                reload(entityClass);
+            } else if (!inserted.isEmpty()) {
+                tables.computeIfPresent(entityClass, (c, current) -> ((InMemoryTable<T>) current).with(inserted));
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private <T> InMemoryTable<T> newTable(EntityType<T> entityType, List<T> rows) {
+        EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getRuntimeMetamodels().getMappingMetamodel().getEntityDescriptor(entityType.getJavaType());
+        PersistenceUnitUtil persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        Function<T, Object> idReader = persistenceUnitUtil::getIdentifier;
+
+        Map<String, Function<T, Object>> readers = new LinkedHashMap<>();
+        for (SingularAttribute<? super T, ?> attribute : entityType.getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) continue;
+            String name = attribute.getName();
+            readers.put(name, attribute.isId() ? idReader : entity -> persister.getPropertyValue(entity, name));
+        }
+        return new InMemoryTable<>(entityType.getJavaType(), rows, idReader, readers, registered.getOrDefault(entityType.getJavaType(), Set.of()));
+    }
+
+    private AtomicLong generation(Class<?> entityClass) {
+        return generations.computeIfAbsent(entityClass, c -> new AtomicLong());
+    }
+}
@@ -0,0 +1,424 @@
+package com.ben.pagination.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * <p>An immutable columnar copy of an entity table, kept by {@link InMemorySearchEngine}.</p>
+ * <em>The rows are numbered in id order. Each basic attribute is a column of primitives when it can be, with its rows sorted
+ * as MySQL sorts them: nulls first and strings case-insensitive. The string columns read by a {@link Like} criteria also
+ * have a trigram index. A write builds a new table, a search keeps the table it started on</em>.
+ */
+class InMemoryTable<T> {
+
+    private static final int GRAM = 3;
+
+    private final Class<T> entityClass;
+    private final List<T> entities;
+    private final Function<T, Object> idReader;
+    private final Map<String, Function<T, Object>> readers;
+    private final Set<String> gramAttributes;
+    private final Map<String, Column> columns = new HashMap<>();
+
+    /**
+     * @param readers        the reader of each basic attribute, the id included
+     * @param gramAttributes the string attributes to index by trigram
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    InMemoryTable(Class<T> entityClass, Collection<T> loaded, Function<T, Object> idReader, Map<String, Function<T, Object>> readers, Set<String> gramAttributes) {
+        this.entityClass = entityClass;
+        this.entities = new ArrayList<>(loaded);
+        this.entities.sort(Comparator.comparing(entity -> (Comparable) idReader.apply(entity)));
+        this.idReader = idReader;
+        this.readers = readers;
+        this.gramAttributes = gramAttributes;
+        readers.forEach((attribute, reader) -> {
+            Column column = newColumn(attribute, reader);
+            if (column != null) columns.put(attribute, column);
+        });
+    }
+
+    /**
+     * <p>A copy of the table with {@code entities} added, or replacing the rows of the same id.</p>
+     */
+    InMemoryTable<T> with(Collection<T> entities) {
+        Map<Object, T> byId = new LinkedHashMap<>();
+        for (T entity : this.entities) byId.put(idReader.apply(entity), entity);
+        for (T entity : entities) byId.put(idReader.apply(entity), entity);
+        return new InMemoryTable<>(entityClass, byId.values(), idReader, readers, gramAttributes);
+    }
+
+    Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    int size() {
+        return entities.size();
+    }
+
+    Object getMaxId() {
+        return entities.isEmpty() ? null : idReader.apply(entities.get(entities.size() - 1));
+    }
+
+    BitSet all() {
+        BitSet all = new BitSet(entities.size());
+        all.set(0, entities.size());
+        return all;
+    }
+
+    /**
+     * <p>Keep the {@code rows} whose string attribute matches {@code value} the way {@link PagingRepositoryHelper#addSimpleMatch} does.</p>
+     *
+     * @return {@code false} when it can not be done in memory
+     */
+    boolean like(String attribute, String value, MatchMode matchMode, BitSet rows) {
+        Column column = columns.get(attribute);
+        if (!(column instanceof StringColumn) || matchMode == MatchMode.FULL_TEXT) return false;
+        StringColumn strings = (StringColumn) column;
+        if (matchMode == MatchMode.EXACT) {
+            rows.and(strings.range(value, false));
+        } else if (matchMode == MatchMode.PREFIX) {
+            rows.and(strings.range(value, true));
+        } else {
+            strings.contains(value.toLowerCase(), rows);
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code false} when it can not be done in memory
+     */
+    boolean equal(String attribute, Object value, BitSet rows) {
+        Column column = columns.get(attribute);
+        if (column == null || !column.accepts(value)) return false;
+        int from = column.lowerBound(value);
+        BitSet equal = new BitSet(entities.size());
+        for (int i = from; i < column.sorted.length && column.compareValue(column.sorted[i], value) == 0; i++) {
+            equal.set(column.sorted[i]);
+        }
+        rows.and(equal);
+        return true;
+    }
+
+    /**
+     * <p>Keep the {@code rows} greater than or equal to {@code value}, or lower than or equal to it.</p>
+     *
+     * @return {@code false} when it can not be done in memory
+     */
+    boolean compare(String attribute, Object value, boolean lower, BitSet rows) {
+        Column column = columns.get(attribute);
+        if (column == null || !column.accepts(value)) return false;
+        BitSet bounded = new BitSet(entities.size());
+        if (lower) {
+            for (int i = column.lowerBound(value); i < column.sorted.length; i++) bounded.set(column.sorted[i]);
+        } else {
+            for (int i = column.nulls; i < column.sorted.length && column.compareValue(column.sorted[i], value) <= 0; i++) bounded.set(column.sorted[i]);
+        }
+        rows.and(bounded);
+        return true;
+    }
+
+    /**
+     * @return {@code false} when it can not be done in memory
+     */
+    boolean in(String attribute, Collection<?> values, BitSet rows) {
+        BitSet in = new BitSet(entities.size());
+        for (Object value : values) {
+            BitSet equal = all();
+            if (!equal(attribute, value, equal)) return false;
+            in.or(equal);
+        }
+        rows.and(in);
+        return true;
+    }
+
+    /**
+     * <p>The {@code rows} in the order of {@code sortOrders}, from {@code firstResult} and at most {@code maxResults} long.</p>
+     *
+     * @return {@code null} when a sort field is not a column of the table
+     */
+    List<T> page(BitSet rows, List<SortRegistry.SortOrder> sortOrders, int firstResult, int maxResults) {
+        for (SortRegistry.SortOrder sortOrder : sortOrders) {
+            if (sortOrder.getField().getJoin() != null || !columns.containsKey(sortOrder.getField().getAttribute())) return null;
+        }
+        IntStream ordered;
+        if (sortOrders.isEmpty() || sortOrders.size() == 1 && sortOrders.get(0).getField().isId()) {
+            // The rows are numbered in id order
+            boolean desc = !sortOrders.isEmpty() && sortOrders.get(0).isDesc();
+            ordered = desc ? IntStream.range(0, entities.size()).map(i -> entities.size() - 1 - i).filter(rows::get) : rows.stream();
+        } else if (sortOrders.size() == 2 && sortOrders.get(1).getField().isId() && sortOrders.get(0).isDesc() == sortOrders.get(1).isDesc()) {
+            // The sorted rows of a column are in id order on equal values, reversed they are sorted descending
+            int[] sorted = columns.get(sortOrders.get(0).getField().getAttribute()).sorted;
+            ordered = (sortOrders.get(0).isDesc() ? IntStream.range(0, sorted.length).map(i -> sorted[sorted.length - 1 - i]) : IntStream.of(sorted)).filter(rows::get);
+        } else {
+            Comparator<Integer> comparator = null;
+            for (SortRegistry.SortOrder sortOrder : sortOrders) {
+                Column column = columns.get(sortOrder.getField().getAttribute());
+                // The values only, a reversed comparator must not reverse the id order of the next sort order
+                Comparator<Integer> next = sortOrder.getField().isId() ? Comparator.naturalOrder() : column::compareValues;
+                if (sortOrder.isDesc()) next = next.reversed();
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+            ordered = rows.stream().boxed().sorted(comparator).mapToInt(Integer::intValue);
+        }
+        List<T> page = new ArrayList<>();
+        ordered.skip(firstResult).limit(maxResults).forEach(row -> page.add(entities.get(row)));
+        return page;
+    }
+
+    private Column newColumn(String attribute, Function<T, Object> reader) {
+        Object[] values = entities.stream().map(reader).toArray();
+        Class<?> type = null;
+        for (Object value : values) {
+            if (value != null) {
+                type = value.getClass();
+                break;
+            }
+        }
+        Column column;
+        if (type == null || type == String.class) {
+            column = new StringColumn(values, gramAttributes.contains(attribute));
+        } else if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+            column = new LongColumn(values);
+        } else if (type == Double.class || type == Float.class) {
+            column = new DoubleColumn(values);
+        } else if (Comparable.class.isAssignableFrom(type)) {
+            column = new ObjectColumn(values);
+        } else {
+            return null;
+        }
+        column.sort(values);
+        return column;
+    }
+
+    /**
+     * <p>A column, its {@code sorted} rows start with the {@code nulls} ones.</p>
+     */
+    private abstract static class Column {
+        int[] sorted;
+        int nulls;
+        boolean[] isNull;
+
+        void sort(Object[] values) {
+            isNull = new boolean[values.length];
+            for (int row = 0; row < values.length; row++) {
+                if (values[row] == null) {
+                    isNull[row] = true;
+                    nulls++;
+                }
+            }
+            sorted = IntStream.range(0, values.length).boxed().sorted(this::compare).mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * <p>Compare two rows, nulls first and in id order on equal values.</p>
+         */
+        int compare(int a, int b) {
+            int compared = compareValues(a, b);
+            return compared != 0 ? compared : Integer.compare(a, b);
+        }
+
+        /**
+         * <p>Compare the values of two rows, nulls first.</p>
+         */
+        int compareValues(int a, int b) {
+            if (isNull[a] || isNull[b]) {
+                return Boolean.compare(!isNull[a], !isNull[b]);
+            }
+            return compareRows(a, b);
+        }
+
+        /**
+         * <p>The first sorted row not lower than {@code value}.</p>
+         */
+        int lowerBound(Object value) {
+            int low = nulls;
+            int high = sorted.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareValue(sorted[middle], value) < 0) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        abstract boolean accepts(Object value);
+
+        abstract int compareRows(int a, int b);
+
+        /**
+         * <p>Compare a row which is not null to a value it {@link #accepts}.</p>
+         */
+        abstract int compareValue(int row, Object value);
+    }
+
+    private static class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(Object[] values) {
+            this.values = new long[values.length];
+            for (int row = 0; row < values.length; row++) {
+                if (values[row] != null) this.values[row] = ((Number) values[row]).longValue();
+            }
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            return Long.compare(values[a], values[b]);
+        }
+
+        @Override
+        int compareValue(int row, Object value) {
+            return Long.compare(values[row], ((Number) value).longValue());
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(Object[] values) {
+            this.values = new double[values.length];
+            for (int row = 0; row < values.length; row++) {
+                if (values[row] != null) this.values[row] = ((Number) values[row]).doubleValue();
+            }
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Number;
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            return Double.compare(values[a], values[b]);
+        }
+
+        @Override
+        int compareValue(int row, Object value) {
+            return Double.compare(values[row], ((Number) value).doubleValue());
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static class ObjectColumn extends Column {
+        private final Comparable[] values;
+        private final Class<?> type;
+
+        ObjectColumn(Object[] values) {
+            this.values = new Comparable[values.length];
+            Class<?> type = null;
+            for (int row = 0; row < values.length; row++) {
+                this.values[row] = (Comparable) values[row];
+                if (type == null && values[row] != null) type = values[row].getClass();
+            }
+            this.type = type;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return type != null && type.isInstance(value);
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            return values[a].compareTo(values[b]);
+        }
+
+        @Override
+        int compareValue(int row, Object value) {
+            return values[row].compareTo(value);
+        }
+    }
+
+    private static class StringColumn extends Column {
+        private final String[] values;
+        private final String[] lowered;
+        private final Map<String, int[]> grams;
+
+        StringColumn(Object[] values, boolean indexGrams) {
+            this.values = new String[values.length];
+            this.lowered = new String[values.length];
+            for (int row = 0; row < values.length; row++) {
+                this.values[row] = (String) values[row];
+                this.lowered[row] = values[row] != null ? ((String) values[row]).toLowerCase() : null;
+            }
+            this.grams = indexGrams ? indexGrams() : null;
+        }
+
+        /**
+         * <p>The rows of each trigram of the lower case values, in row order.</p>
+         */
+        private Map<String, int[]> indexGrams() {
+            Map<String, BitSet> postings = new HashMap<>();
+            for (int row = 0; row < lowered.length; row++) {
+                String value = lowered[row];
+                if (value == null) continue;
+                for (int i = 0; i + GRAM <= value.length(); i++) {
+                    postings.computeIfAbsent(value.substring(i, i + GRAM), gram -> new BitSet()).set(row);
+                }
+            }
+            Map<String, int[]> grams = new HashMap<>(postings.size() * 2);
+            postings.forEach((gram, rows) -> grams.put(gram, rows.stream().toArray()));
+            return grams;
+        }
+
+        /**
+         * <p>Keep the {@code rows} containing {@code value}, the trigrams of the value narrow the rows to check first.</p>
+         */
+        void contains(String value, BitSet rows) {
+            if (grams != null && value.length() >= GRAM) {
+                for (int i = 0; i + GRAM <= value.length() && !rows.isEmpty(); i++) {
+                    int[] posting = grams.get(value.substring(i, i + GRAM));
+                    BitSet gramRows = new BitSet(lowered.length);
+                    if (posting != null) for (int row : posting) gramRows.set(row);
+                    rows.and(gramRows);
+                }
+            }
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (lowered[row] == null || !lowered[row].contains(value)) rows.clear(row);
+            }
+        }
+
+        /**
+         * <p>The rows equal to {@code value}, or starting with it, case-insensitive.</p>
+         */
+        BitSet range(String value, boolean prefix) {
+            BitSet range = new BitSet(values.length);
+            for (int i = lowerBound(value); i < sorted.length; i++) {
+                String candidate = values[sorted[i]];
+                if (prefix ? !candidate.regionMatches(true, 0, value, 0, value.length()) : !candidate.equalsIgnoreCase(value)) break;
+                range.set(sorted[i]);
+            }
+            return range;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof String;
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            return String.CASE_INSENSITIVE_ORDER.compare(values[a], values[b]);
+        }
+
+        @Override
+        int compareValue(int row, Object value) {
+            return String.CASE_INSENSITIVE_ORDER.compare(values[row], (String) value);
+        }
+    }
+}
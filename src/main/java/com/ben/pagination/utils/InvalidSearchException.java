@@ -0,0 +1,40 @@
+package com.ben.pagination.utils;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * <p>A search the client has to change, its {@link Reason} tells which part of it is rejected.</p>
+ */
+@Getter
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSearchException extends IllegalArgumentException {
+
+    private final Reason reason;
+
+    public InvalidSearchException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public InvalidSearchException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public enum Reason {
+        /** A sort on a field {@link SortRegistry} does not allow */
+        SORT,
+        /** A page too deep to be fetched by offset, it has to be reached with a continuation token */
+        DEEP_PAGE,
+        /** A batch of more searches than {@code pagination.guardrails.max-batch-size} */
+        TOO_MANY_SEARCHES,
+        /** A facet on a field {@link SortRegistry} does not know, or with an unknown function */
+        FACET,
+        /** A filter tree with an unknown field, a missing operator or a value of the wrong type */
+        FILTER,
+        /** A continuation token which was not produced by a search, or was altered */
+        CURSOR
+    }
+}
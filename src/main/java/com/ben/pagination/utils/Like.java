@@ -0,0 +1,20 @@
+package com.ben.pagination.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Filter on an attribute containing the string of the criteria field, see {@link PagingRepositoryHelper#addSimpleLike}.</p>
+ * <em>With a {@code matchMode} the criteria field named by it chooses how the string is matched, see {@link PagingRepositoryHelper#addSimpleMatch}</em>.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Like {
+    /** The attribute, {@code relation/attribute} through a relation. */
+    String value();
+
+    /** The criteria field holding the {@link MatchMode}. */
+    String matchMode() default "";
+}
@@ -0,0 +1,15 @@
+package com.ben.pagination.utils;
+
+/**
+ * <p>How a string criteria matches its field.</p>
+ */
+public enum MatchMode {
+    /** {@code field = value}, can use a B-tree index on the field. */
+    EXACT,
+    /** {@code field like 'value%'}, can use a B-tree index on the field. */
+    PREFIX,
+    /** {@code lower(field) like '%value%'}, always a scan. */
+    CONTAINS,
+    /** MySQL {@code match(field) against (value)}, needs a {@link FullTextIndex} on the field. */
+    FULL_TEXT
+}
@@ -0,0 +1,164 @@
+package com.ben.pagination.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.Value;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>The guardrails of the searches: the page size is capped by {@code pagination.guardrails.max-page-size}, the fetch size
+ * of the cursors by the rows that fit in a share of the free heap, and the deep pages are sought from the row the page
+ * before them ended on.</p>
+ * <em>The page size does not shrink with the heap, the pages the clients walk would shift under them. The width of a row is
+ * measured on the pages fetched, a managed entity is counted twice since the persistence context keeps a snapshot of its
+ * state</em>.
+ */
+@Service
+public class PageGuard {
+
+    private static final int DEFAULT_PAGE_SIZE = 25;
+    private static final long ROW_OVERHEAD = 64;
+    private static final long REFERENCE_WIDTH = 8;
+    private static final long VALUE_WIDTH = 24;
+    private static final int MANAGED_COPIES = 2;
+    private static final double WIDTH_SMOOTHING = 0.2;
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Map<Class<?>, Double> rowWidths = new ConcurrentHashMap<>();
+    private final Map<Class<?>, List<Member>> membersByEntity = new ConcurrentHashMap<>();
+    private Cache<AnchorKey, String> anchors;
+
+    @PostConstruct
+    protected void init() {
+        anchors = Caffeine.newBuilder()
+                .maximumSize(properties.getGuardrails().getAnchorCacheSize())
+                .expireAfterWrite(properties.getGuardrails().getAnchorTtl())
+                .build();
+    }
+
+    /**
+     * <p>The page size a search of {@code entityClass} runs with, at least one row.</p>
+     */
+    public int getPageSize(Class<?> entityClass, Integer pageSize) {
+        int size = pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
+        return Math.max(1, Math.min(size, properties.getGuardrails().getMaxPageSize()));
+    }
+
+    /**
+     * <p>The fetch size of a cursor over {@code entityClass}, {@code fetchSize} unless fewer rows fit in the heap.</p>
+     */
+    public int getFetchSize(Class<?> entityClass, int fetchSize) {
+        return (int) Math.max(1, Math.min(fetchSize, getFittingRows(entityClass)));
+    }
+
+    public boolean isDeep(long offset) {
+        return offset > properties.getGuardrails().getMaxOffset();
+    }
+
+    /**
+     * <p>Measure the first row of a fetched page, the width of the rows is a moving average over the pages.</p>
+     */
+    public void recordRows(Class<?> entityClass, List<?> rows) {
+        if (rows.isEmpty() || rows.get(0) == null) return;
+        double width = getWidth(entityClass, Hibernate.unproxy(rows.get(0)));
+        rowWidths.merge(entityClass, width, (average, sample) -> average + WIDTH_SMOOTHING * (sample - average));
+    }
+
+    /**
+     * @return the continuation token of the row before {@code position}, {@code null} when no page ended there
+     */
+    public String getAnchor(Class<?> entityClass, String criteria, String sort, long position) {
+        return anchors.getIfPresent(new AnchorKey(entityClass, criteria, sort, position));
+    }
+
+    public void putAnchor(Class<?> entityClass, String criteria, String sort, long position, String cursor) {
+        anchors.put(new AnchorKey(entityClass, criteria, sort, position), cursor);
+    }
+
+    /**
+     * <p>Forget the anchors of {@code entityClass}, a write shifts the rows after it.</p>
+     */
+    public void invalidate(Class<?> entityClass) {
+        anchors.asMap().keySet().removeIf(key -> key.getEntityClass().equals(entityClass));
+    }
+
+    /**
+     * <p>The rows of {@code entityClass} that fit in {@code pagination.guardrails.heap-fraction} of the free heap.</p>
+     * <em>The garbage not collected yet is counted as used, so the estimate errs on the small side</em>.
+     */
+    protected long getFittingRows(Class<?> entityClass) {
+        Double width = rowWidths.get(entityClass);
+        if (width == null) return Long.MAX_VALUE;
+        Runtime runtime = Runtime.getRuntime();
+        long headroom = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return (long) (headroom * properties.getGuardrails().getHeapFraction() / (width * MANAGED_COPIES));
+    }
+
+    protected double getWidth(Class<?> entityClass, Object row) {
+        long width = ROW_OVERHEAD;
+        for (Member member : getMembers(entityClass)) {
+            width += REFERENCE_WIDTH + getWidth(read(member, row));
+        }
+        return width;
+    }
+
+    protected long getWidth(Object value) {
+        if (value == null) return 0;
+        if (value instanceof CharSequence) return 40 + 2L * ((CharSequence) value).length();
+        if (value instanceof byte[]) return 16 + ((byte[]) value).length;
+        return VALUE_WIDTH;
+    }
+
+    private List<Member> getMembers(Class<?> entityClass) {
+        return membersByEntity.computeIfAbsent(entityClass, c -> {
+            EntityType<?> entityType = entityManagerFactory.getMetamodel().entity(c);
+            List<Member> members = new ArrayList<>();
+            for (Attribute<?, ?> attribute : entityType.getAttributes()) {
+                // The relations are other rows, loaded or not
+                if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) continue;
+                Member member = attribute.getJavaMember();
+                if (member instanceof AccessibleObject) {
+                    ((AccessibleObject) member).trySetAccessible();
+                    members.add(member);
+                }
+            }
+            return members;
+        });
+    }
+
+    private Object read(Member member, Object row) {
+        try {
+            return member instanceof Field ? ((Field) member).get(row) : ((Method) member).invoke(row);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Value
+    private static class AnchorKey {
+        Class<?> entityClass;
+        String criteria;
+        String sort;
+        long position;
+    }
+}
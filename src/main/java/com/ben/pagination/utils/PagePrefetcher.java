@@ -0,0 +1,168 @@
+package com.ben.pagination.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>The pages fetched ahead of a client paging forward, see {@code pagination.prefetch}.</p>
+ * <em>Once a page is served the next one is fetched on a bounded pool and kept a few seconds. A prefetched page is served
+ * once, even while it is still being fetched, and dropped when the entity is written. A prefetch is given up when the
+ * pool is busy, it never delays a search</em>.
+ */
+@Component
+public class PagePrefetcher {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private PagingRepositoryHelper helper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate readOnly;
+    private Cache<CacheKey, CompletableFuture<Object>> pages;
+    // The generation is part of the key so a page prefetched before a write is stored where no one looks it up
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong wasted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    protected void start() {
+        PaginationProperties.Prefetch config = properties.getPrefetch();
+        executor = new ThreadPoolExecutor(config.getPoolSize(), config.getPoolSize(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), new CustomizableThreadFactory("pagination-prefetch-"));
+        executor.allowCoreThreadTimeOut(true);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        pages = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .<CacheKey, CompletableFuture<Object>>removalListener((key, page, cause) -> {
+                    // A served or invalidated page is removed explicitly, the others were fetched for nothing
+                    if (cause == RemovalCause.EXPIRED || cause == RemovalCause.SIZE) wasted.incrementAndGet();
+                })
+                .build();
+    }
+
+    @PreDestroy
+    protected void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * <p>Serve the prefetched page of {@code extra} when there is one, {@code loader} otherwise.</p>
+     *
+     * @param kind  what is fetched, e.g. {@code "search"} or {@code "seek"}
+     * @param extra everything besides the criteria the page depends on (page or cursor, size, sort)
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Class<?> entityClass, String kind, SearchCriteria crit, List<?> extra, Supplier<V> loader) {
+        if (!properties.getPrefetch().isEnabled()) return loader.get();
+
+        CompletableFuture<Object> page = pages.asMap().remove(key(entityClass, kind, crit, extra));
+        if (page != null) {
+            try {
+                V value = (V) page.join();
+                hits.incrementAndGet();
+                return value;
+            } catch (CompletionException e) {
+                // The prefetch failed, the search tells why
+            }
+        }
+        misses.incrementAndGet();
+        return loader.get();
+    }
+
+    /**
+     * <p>Fetch the page of {@code extra} in a read-only transaction of its own, unless it is already fetched or the pool is busy.</p>
+     */
+    public void prefetch(Class<?> entityClass, String kind, SearchCriteria crit, List<?> extra, Supplier<?> loader) {
+        if (!properties.getPrefetch().isEnabled()) return;
+
+        CacheKey key = key(entityClass, kind, crit, extra);
+        CompletableFuture<Object> page = new CompletableFuture<>();
+        if (pages.asMap().putIfAbsent(key, page) != null) return;
+        try {
+            executor.execute(() -> {
+                try {
+                    page.complete(readOnly.execute(status -> loader.get()));
+                } catch (RuntimeException e) {
+                    page.completeExceptionally(e);
+                }
+            });
+            prefetched.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            pages.asMap().remove(key, page);
+            dropped.incrementAndGet();
+        }
+    }
+
+    public void invalidate(Class<?> entityClass) {
+        generation(entityClass).incrementAndGet();
+        pages.asMap().keySet().removeIf(key -> key.getEntityClass().equals(entityClass));
+    }
+
+    public Stats getStats() {
+        long hitCount = hits.get();
+        long requestCount = hitCount + misses.get();
+        return new Stats(hitCount, misses.get(), requestCount == 0 ? 0 : (double) hitCount / requestCount,
+                prefetched.get(), wasted.get(), dropped.get(), pages.estimatedSize());
+    }
+
+    private CacheKey key(Class<?> entityClass, String kind, SearchCriteria crit, List<?> extra) {
+        return new CacheKey(entityClass, generation(entityClass).get(), kind, helper.criteriaKey(crit), extra);
+    }
+
+    private AtomicLong generation(Class<?> entityClass) {
+        return generations.computeIfAbsent(entityClass, c -> new AtomicLong());
+    }
+
+    @Value
+    private static class CacheKey {
+        Class<?> entityClass;
+        long generation;
+        String kind;
+        String criteria;
+        List<?> extra;
+    }
+
+    @Value
+    public static class Stats {
+        long hits;
+        long misses;
+        double hitRatio;
+        long prefetched;
+        // The pages evicted or expired before being served
+        long wasted;
+        // The prefetches given up because the pool was busy
+        long dropped;
+        long size;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ben.pagination.utils;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <p>Timers and counters of the pagination engine, tagged by entity, kind of query and criteria shape.</p>
+ * <em>Queries slower than {@code pagination.metrics.slow-query-millis} are logged with their shape,
+ * Hibernate logs their SQL on {@code org.hibernate.SQL_SLOW} with the same threshold</em>.
+ */
+@Slf4j
+@Component
+public class PaginationMetrics {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private PaginationProperties properties;
+
+    /**
+     * <p>Time the building of a query plan, predicates included, only done when the plan cache misses.</p>
+     */
+    public <R> R timePlanBuild(QueryShape shape, Supplier<R> build) {
+        return Timer.builder("pagination.plan.build")
+                .tags(getTags(shape))
+                .register(registry)
+                .record(build);
+    }
+
+    /**
+     * @param query {@code count}, {@code page} or {@code export}
+     */
+    public <R> R timeQuery(String query, QueryShape shape, Supplier<R> run) {
+        long start = System.nanoTime();
+        try {
+            return run.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("pagination.query")
+                    .tags(getTags(shape).and("query", query))
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            if (millis >= properties.getMetrics().getSlowQueryMillis()) {
+                log.warn("Slow {} query on {} took {} ms, kind {}, criteria [{}], sort {}", query, shape.getEntityClass().getSimpleName(),
+                        millis, shape.getKind(), shape.getFields(), shape.getSort());
+            }
+        }
+    }
+
+    /**
+     * @param offset the offset of the page, {@code null} for a seek
+     * @param rows   the rows hydrated for the page
+     */
+    public void recordPage(QueryShape shape, Long offset, int rows) {
+        registry.counter("pagination.rows", getTags(shape)).increment(rows);
+        if (offset != null) {
+            DistributionSummary.builder("pagination.page.offset")
+                    .tags(getTags(shape))
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(offset);
+        }
+    }
+
+    /**
+     * <p>Count a search made distinct by a collection join, the duplicates are removed by the database.</p>
+     */
+    public void recordDistinct(QueryShape shape) {
+        registry.counter("pagination.distinct", getTags(shape)).increment();
+    }
+
+    private Tags getTags(QueryShape shape) {
+        String kind = shape.getKind();
+        return Tags.of("entity", shape.getEntityClass().getSimpleName(),
+                // The projected fields are left out of the kind to keep the number of series bounded
+                "kind", kind.indexOf(':') > -1 ? kind.substring(0, kind.indexOf(':')) : kind,
+                "shape", shape.getFields().isEmpty() ? "none" : shape.getFields());
+    }
+}
@@ -0,0 +1,160 @@
+package com.ben.pagination.utils;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "pagination")
+public class PaginationProperties {
+
+    private Count count = new Count();
+    private PlanCache planCache = new PlanCache();
+    private Export export = new Export();
+    private FullText fullText = new FullText();
+    private ParallelCount parallelCount = new ParallelCount();
+    private ResultCache resultCache = new ResultCache();
+    private Batch batch = new Batch();
+    private Replicas replicas = new Replicas();
+    private Metrics metrics = new Metrics();
+    private Reactive reactive = new Reactive();
+    private SortSettings sort = new SortSettings();
+    private Guardrails guardrails = new Guardrails();
+    private Prefetch prefetch = new Prefetch();
+    private SingleFlight singleFlight = new SingleFlight();
+    private InMemory inMemory = new InMemory();
+    private Facets facets = new Facets();
+    private Changes changes = new Changes();
+    private WarmUp warmUp = new WarmUp();
+
+    @Data
+    public static class Count {
+        private CountMode mode = CountMode.EXACT;
+        private Duration cacheTtl = Duration.ofSeconds(30);
+        private int cacheMaxSize = 1000;
+    }
+
+    @Data
+    public static class PlanCache {
+        private int maxSize = 500;
+    }
+
+    @Data
+    public static class Export {
+        private int fetchSize = 1000;
+        private int clearEvery = 1000;
+    }
+
+    @Data
+    public static class FullText {
+        private boolean createIndexes = true;
+    }
+
+    @Data
+    public static class ParallelCount {
+        private boolean enabled = false;
+        private int poolSize = 8;
+        private int queueCapacity = 100;
+        private Duration timeout = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class ResultCache {
+        private boolean enabled = false;
+        private int maxSize = 1000;
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Batch {
+        private int chunkSize = 1000;
+    }
+
+    @Data
+    public static class Replicas {
+        private boolean enabled = false;
+        private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+        private Duration failoverCooldown = Duration.ofSeconds(30);
+        private List<Replica> datasources = new ArrayList<>();
+    }
+
+    @Data
+    public static class Metrics {
+        private long slowQueryMillis = 500;
+    }
+
+    @Data
+    public static class Reactive {
+        private int threadCap = 50;
+        private int queueCapacity = 1000;
+    }
+
+    @Data
+    public static class SortSettings {
+        private SortPolicy unindexed = SortPolicy.WARN;
+    }
+
+    @Data
+    public static class Guardrails {
+        private int maxPageSize = 100;
+        private long maxOffset = 10000;
+        private DeepPagePolicy deepPage = DeepPagePolicy.SEEK;
+        private double heapFraction = 0.05;
+        private int anchorCacheSize = 10000;
+        private Duration anchorTtl = Duration.ofMinutes(5);
+        private int maxBatchSize = 50;
+    }
+
+    @Data
+    public static class Prefetch {
+        private boolean enabled = false;
+        private int poolSize = 4;
+        private int queueCapacity = 100;
+        private int maxSize = 1000;
+        private Duration ttl = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class SingleFlight {
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class InMemory {
+        private List<Class<?>> entities = new ArrayList<>();
+        private int maxRows = 100000;
+        private Duration reloadInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Facets {
+        private int maxGroups = 1000;
+    }
+
+    @Data
+    public static class Changes {
+        private String field = "updatedAt";
+        private Duration settle = Duration.ofSeconds(1);
+        private Duration pollInterval = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class WarmUp {
+        private boolean enabled = false;
+        private int iterations = 10;
+        private boolean exit = false;
+    }
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
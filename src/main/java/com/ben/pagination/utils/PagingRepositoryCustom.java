@@ -1,14 +1,39 @@
 package com.ben.pagination.utils;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface PagingRepositoryCustom <T, U extends SearchCriteria>{
 
     Long count(U crit);
 
+    Long count(U crit, CountMode countMode);
+
     Page<T> search(U crit, Integer currentPage, Integer pageSize, String sortDirection, String SortedField);
 
+    Page<T> search(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode);
+
+    <P> Page<P> search(U crit, Projection<P> projection, Integer currentPage, Integer pageSize, String sortDirection, String sortedField);
+
+    <P> Page<P> search(U crit, Projection<P> projection, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode);
+
+    Map<String, List<FacetCount>> facets(U crit, List<String> facets);
+
+    FacetedPage<T> searchWithFacets(U crit, List<String> facets, Integer currentPage, Integer pageSize, String sortDirection, String sortedField);
+
+    List<Page<T>> searchBatch(List<SearchRequest<U>> requests);
+
+    Slice<T> searchSlice(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField);
+
     List<T> search(U crit, String SortDirection, String SortedField);
+
+    long export(U crit, String sortDirection, String sortedField, Consumer<T> consumer);
+
+    CursorPage<T> searchAfter(U crit, String cursor, Integer pageSize, String sortDirection, String sortedField);
+
+    CursorPage<T> changes(U crit, String since, Integer pageSize);
 }
@@ -2,39 +2,95 @@ package com.ben.pagination.utils;
 
 import com.ben.pagination.criteria.StudentCriteria;
 import com.ben.pagination.entity.Student;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
 
+import java.beans.PropertyDescriptor;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.StringJoiner;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class PagingRepositoryHelper {
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The bindings of the query plan being built by the current thread, if any
+    private final ThreadLocal<QueryBindings<?>> currentBindings = new ThreadLocal<>();
 
     public <T extends SearchCriteria> Predicate addSimpleLike(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, String> getter) {
         if (getter.apply(criteria) != null) {
+            Expression<String> pattern = value(cb, String.class, criteria, c -> surroundPercent(getter.apply(c).toLowerCase()));
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
-                return cb.and(pred, cb.like(cb.lower(enumPath.get(attrs[1]).as(String.class)),
-                        surroundPercent(getter.apply(criteria).toLowerCase())));
+                return cb.and(pred, cb.like(cb.lower(enumPath.get(attrs[1]).as(String.class)), pattern));
             } else {
-                return cb.and(pred, cb.like(cb.lower(rootEntity.get(attributeName).as(String.class)),
-                        surroundPercent(getter.apply(criteria).toLowerCase())));
+                return cb.and(pred, cb.like(cb.lower(rootEntity.get(attributeName).as(String.class)), pattern));
             }
         }
         return pred;
     }
 
 
+    /**
+     * <p>Build a predicate matching a string field the way {@code matchModeGetter} asks, a {@link MatchMode#CONTAINS} like when it is null.</p>
+     * <em>{@link MatchMode#EXACT} and {@link MatchMode#PREFIX} compare the raw column so a B-tree index on it can be used,
+     * they rely on a case-insensitive collation. {@link MatchMode#FULL_TEXT} needs a {@link FullTextIndex} on the single field</em>.
+     */
+    public <T extends SearchCriteria> Predicate addSimpleMatch(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, String> getter, Function<T, MatchMode> matchModeGetter) {
+        if (getter.apply(criteria) != null) {
+            return cb.and(pred, match(cb, getPath(rootEntity, attributeName), criteria, getter, matchModeGetter,
+                    c -> surroundPercent(getter.apply(c).toLowerCase())));
+        }
+        return pred;
+    }
+
+    /**
+     * <p>The predicate of {@link #addSimpleMatch} on a resolved {@code field}, for a criteria whose value is not null.</p>
+     *
+     * @param containsPattern the lower case pattern of a {@link MatchMode#CONTAINS} like
+     */
+    public <T extends SearchCriteria> Predicate match(CriteriaBuilder cb, Path<String> field, T criteria, Function<T, String> getter,
+                                                      Function<T, MatchMode> matchModeGetter, Function<T, String> containsPattern) {
+        MatchMode matchMode = getMatchMode(criteria, matchModeGetter);
+        guard(criteria, c -> getMatchMode(c, matchModeGetter) == matchMode);
+        switch (matchMode) {
+            case CONTAINS:
+                return cb.like(cb.lower(field.as(String.class)), value(cb, String.class, criteria, containsPattern));
+            case EXACT:
+                return cb.equal(field, value(cb, String.class, criteria, getter));
+            case PREFIX:
+                return cb.like(field, value(cb, String.class, criteria, c -> escapeLike(getter.apply(c)) + '%'), '\\');
+            default:
+                return cb.greaterThan(cb.function("match_against", Double.class, field, value(cb, String.class, criteria, getter)), 0d);
+        }
+    }
+
+    private <T extends SearchCriteria> MatchMode getMatchMode(T criteria, Function<T, MatchMode> matchModeGetter) {
+        MatchMode matchMode = matchModeGetter.apply(criteria);
+        return matchMode == null ? MatchMode.CONTAINS : matchMode;
+    }
+
     public <T extends SearchCriteria> Predicate addSimpleLikeOnTwoColumns(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String firstAtributeName, String secondAttributeName, Function<T, String> getter) {
         if (getter.apply(criteria) != null) {
             Predicate or = cb.conjunction();
@@ -57,6 +113,7 @@ public class PagingRepositoryHelper {
 
     public Predicate addSimpleEqual(Predicate pred, CriteriaBuilder cb, Root rootEntity, String attributeName, String value) {
         if (value != null) {
+            inlined();
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
@@ -72,14 +129,13 @@ public class PagingRepositoryHelper {
 
     public <T extends SearchCriteria> Predicate addSimpleIntegerEqual(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, Integer> getter) {
         if (getter.apply(criteria) != null) {
+            Expression<Integer> value = value(cb, Integer.class, criteria, getter);
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
-                return cb.and(pred, cb.equal(enumPath.get(attrs[1]).as(Integer.class),
-                        getter.apply(criteria)));
+                return cb.and(pred, cb.equal(enumPath.get(attrs[1]).as(Integer.class), value));
             } else {
-                return cb.and(pred, cb.equal(rootEntity.get(attributeName).as(Integer.class),
-                        getter.apply(criteria)));
+                return cb.and(pred, cb.equal(rootEntity.get(attributeName).as(Integer.class), value));
             }
         }
         return pred;
@@ -97,6 +153,7 @@ public class PagingRepositoryHelper {
         String criteriaValStr = getter.apply(criteria);
         if (criteriaValStr != null) {
             Boolean criteriaValBool = toBooleanObject(criteriaValStr);
+            guard(criteria, c -> toBooleanObject(getter.apply(c)) != null);
             if(criteriaValBool==null){
                 return pred;
             }
@@ -109,13 +166,14 @@ public class PagingRepositoryHelper {
                 fieldExp = rootEntity.get(attributeName).as(Boolean.class);
             }
 
-            return cb.and(pred, cb.equal(fieldExp, cb.literal(criteriaValBool)));
+            return cb.and(pred, cb.equal(fieldExp, value(cb, Boolean.class, criteria, c -> toBooleanObject(getter.apply(c)))));
         }
         return pred;
     }
 
     public Predicate addSimpleNotEqual(Predicate pred, CriteriaBuilder cb, Root rootEntity, String attributeName, String value) {
         if (value != null) {
+            inlined();
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
@@ -131,62 +189,78 @@ public class PagingRepositoryHelper {
 
     public <T extends SearchCriteria> Predicate addSimpleDateLike(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, String> getter) {
         if (getter.apply(criteria) != null) {
-            Expression<String> vehicleRegistrationExpDate;
+            Path datePath;
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
-                vehicleRegistrationExpDate = cb.function(
-                        "DATE_FORMAT",
-                        String.class,
-                        enumPath.get(attrs[1]),
-                        cb.literal("%d/%m/%Y")
-                );
+                datePath = enumPath.get(attrs[1]);
             } else {
-                vehicleRegistrationExpDate = cb.function(
-                        "DATE_FORMAT",
-                        String.class,
-                        rootEntity.get(attributeName),
-                        cb.literal("%d/%m/%Y")
-                );
+                datePath = rootEntity.get(attributeName);
             }
-            return cb.and(pred, cb.like(vehicleRegistrationExpDate, surroundPercent(getter.apply(criteria))));
+            guard(criteria, c -> DateRange.parse(getter.apply(c), false) != null);
+            if (DateRange.parse(getter.apply(criteria), false) != null) {
+                return addDateRange(pred, cb, datePath, criteria, getter, false);
+            }
+            // Not a partial date, fall back on matching the formatted column
+            Expression<String> vehicleRegistrationExpDate = cb.function(
+                    "DATE_FORMAT",
+                    String.class,
+                    datePath,
+                    cb.literal("%d/%m/%Y")
+            );
+            return cb.and(pred, cb.like(vehicleRegistrationExpDate, value(cb, String.class, criteria, c -> surroundPercent(getter.apply(c)))));
         }
         return pred;
     }
 
     public <T extends SearchCriteria> Predicate addSimpleLocalDateTimeLike(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, String> getter) {
         if (getter.apply(criteria) != null) {
-            Expression<String> vehicleRegistrationExpDate;
+            Path datePath;
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
-                vehicleRegistrationExpDate = cb.function(
-                        "DATE_FORMAT",
-                        String.class,
-                        enumPath.get(attrs[1]),
-                        cb.literal("%d/%m/%Y %r")
-                );
+                datePath = enumPath.get(attrs[1]);
             } else {
-                vehicleRegistrationExpDate = cb.function(
-                        "DATE_FORMAT",
-                        String.class,
-                        rootEntity.get(attributeName),
-                        cb.literal("%d/%m/%Y %r")
-                );
+                datePath = rootEntity.get(attributeName);
+            }
+            guard(criteria, c -> DateRange.parse(getter.apply(c), true) != null);
+            if (DateRange.parse(getter.apply(criteria), true) != null) {
+                return addDateRange(pred, cb, datePath, criteria, getter, true);
             }
-            return cb.and(pred, cb.like(vehicleRegistrationExpDate, surroundPercent(getter.apply(criteria))));
+            // Not a partial date, fall back on matching the formatted column
+            Expression<String> vehicleRegistrationExpDate = cb.function(
+                    "DATE_FORMAT",
+                    String.class,
+                    datePath,
+                    cb.literal("%d/%m/%Y %r")
+            );
+            return cb.and(pred, cb.like(vehicleRegistrationExpDate, value(cb, String.class, criteria, c -> surroundPercent(getter.apply(c)))));
         }
         return pred;
     }
 
+    /**
+     * <p>Compare a date column to the {@link DateRange} of a partial user input ({@code "2023"}, {@code "12/2023"}, {@code "05/12/2023"}...).</p>
+     * <em>The raw column is compared with {@code >=} and {@code <}, so it is an index range scan where {@code DATE_FORMAT} was a full scan.
+     * The range is converted to the java type of the column</em>.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends SearchCriteria> Predicate addDateRange(Predicate pred, CriteriaBuilder cb, Path datePath, T criteria, Function<T, String> getter, boolean withTime) {
+        Class<Object> type = (Class<Object>) datePath.getJavaType();
+        Expression start = value(cb, type, criteria, c -> DateRange.parse(getter.apply(c), withTime).getStartAs(type));
+        Expression end = value(cb, type, criteria, c -> DateRange.parse(getter.apply(c), withTime).getEndAs(type));
+        return cb.and(pred, cb.greaterThanOrEqualTo(datePath, start), cb.lessThan(datePath, end));
+    }
+
     public <T extends SearchCriteria> Predicate addSimpleLocalDateBeforeOrEqual(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, LocalDate> getter) {
         if (getter.apply(criteria) != null) {
+            Expression<LocalDate> value = value(cb, LocalDate.class, criteria, getter);
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
-                return cb.and(pred,  cb.lessThanOrEqualTo(enumPath.get(attrs[1]), getter.apply(criteria)));
+                return cb.and(pred,  cb.lessThanOrEqualTo(enumPath.get(attrs[1]), value));
             } else {
-                return cb.and(pred, cb.lessThanOrEqualTo(rootEntity.get(attributeName), getter.apply(criteria)));
+                return cb.and(pred, cb.lessThanOrEqualTo(rootEntity.get(attributeName), value));
             }
         }
         return pred;
@@ -194,12 +268,13 @@ public class PagingRepositoryHelper {
 
     public <T extends SearchCriteria> Predicate addSimpleLocalDateAfterOrEqual(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, LocalDate> getter) {
         if (getter.apply(criteria) != null) {
+            Expression<LocalDate> value = value(cb, LocalDate.class, criteria, getter);
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
-                return cb.and(pred,  cb.greaterThanOrEqualTo(enumPath.get(attrs[1]), getter.apply(criteria)));
+                return cb.and(pred,  cb.greaterThanOrEqualTo(enumPath.get(attrs[1]), value));
             } else {
-                return cb.and(pred, cb.greaterThanOrEqualTo(rootEntity.get(attributeName), getter.apply(criteria)));
+                return cb.and(pred, cb.greaterThanOrEqualTo(rootEntity.get(attributeName), value));
             }
         }
         return pred;
@@ -207,23 +282,25 @@ public class PagingRepositoryHelper {
 
     public <T extends SearchCriteria> Predicate addSimpleLocalDateBetween(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, LocalDate> getterBefore, Function<T, LocalDate> getterAfter) {
         if (getterBefore.apply(criteria) != null || getterAfter.apply(criteria) != null) {
+            Expression<LocalDate> before = getterBefore.apply(criteria) != null ? value(cb, LocalDate.class, criteria, getterBefore) : null;
+            Expression<LocalDate> after = getterAfter.apply(criteria) != null ? value(cb, LocalDate.class, criteria, getterAfter) : null;
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
                 if(getterBefore.apply(criteria) != null && getterAfter.apply(criteria) != null) {
-                    return cb.and(pred, cb.between(enumPath.get(attrs[1]), getterBefore.apply(criteria), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.between(enumPath.get(attrs[1]), before, after));
                 } else if (getterBefore.apply(criteria) != null) {
-                    return cb.and(pred, cb.greaterThanOrEqualTo(enumPath.get(attrs[1]), getterBefore.apply(criteria)));
+                    return cb.and(pred, cb.greaterThanOrEqualTo(enumPath.get(attrs[1]), before));
                 } else {
-                    return cb.and(pred, cb.lessThanOrEqualTo(enumPath.get(attrs[1]), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.lessThanOrEqualTo(enumPath.get(attrs[1]), after));
                 }
             } else {
                 if(getterBefore.apply(criteria) != null && getterAfter.apply(criteria) != null) {
-                    return cb.and(pred, cb.between(rootEntity.get(attributeName), getterBefore.apply(criteria), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.between(rootEntity.get(attributeName), before, after));
                 } else if (getterBefore.apply(criteria) != null) {
-                    return cb.and(pred, cb.greaterThanOrEqualTo(rootEntity.get(attributeName), getterBefore.apply(criteria)));
+                    return cb.and(pred, cb.greaterThanOrEqualTo(rootEntity.get(attributeName), before));
                 } else {
-                    return cb.and(pred, cb.lessThanOrEqualTo(rootEntity.get(attributeName), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.lessThanOrEqualTo(rootEntity.get(attributeName), after));
                 }
             }
         }
@@ -232,23 +309,25 @@ public class PagingRepositoryHelper {
 
     public <T extends SearchCriteria> Predicate addSimpleLocalDateTimeBetween(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, LocalDateTime> getterBefore, Function<T, LocalDateTime> getterAfter) {
         if (getterBefore.apply(criteria) != null || getterAfter.apply(criteria) != null) {
+            Expression<LocalDateTime> before = getterBefore.apply(criteria) != null ? value(cb, LocalDateTime.class, criteria, getterBefore) : null;
+            Expression<LocalDateTime> after = getterAfter.apply(criteria) != null ? value(cb, LocalDateTime.class, criteria, getterAfter) : null;
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
                 if(getterBefore.apply(criteria) != null && getterAfter.apply(criteria) != null) {
-                    return cb.and(pred, cb.between(enumPath.get(attrs[1]), getterBefore.apply(criteria), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.between(enumPath.get(attrs[1]), before, after));
                 } else if (getterBefore.apply(criteria) != null) {
-                    return cb.and(pred, cb.greaterThanOrEqualTo(enumPath.get(attrs[1]), getterBefore.apply(criteria)));
+                    return cb.and(pred, cb.greaterThanOrEqualTo(enumPath.get(attrs[1]), before));
                 } else {
-                    return cb.and(pred, cb.lessThanOrEqualTo(enumPath.get(attrs[1]), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.lessThanOrEqualTo(enumPath.get(attrs[1]), after));
                 }
             } else {
                 if(getterBefore.apply(criteria) != null && getterAfter.apply(criteria) != null) {
-                    return cb.and(pred, cb.between(rootEntity.get(attributeName), getterBefore.apply(criteria), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.between(rootEntity.get(attributeName), before, after));
                 } else if (getterBefore.apply(criteria) != null) {
-                    return cb.and(pred, cb.greaterThanOrEqualTo(rootEntity.get(attributeName), getterBefore.apply(criteria)));
+                    return cb.and(pred, cb.greaterThanOrEqualTo(rootEntity.get(attributeName), before));
                 } else {
-                    return cb.and(pred, cb.lessThanOrEqualTo(rootEntity.get(attributeName), getterAfter.apply(criteria)));
+                    return cb.and(pred, cb.lessThanOrEqualTo(rootEntity.get(attributeName), after));
                 }
             }
         }
@@ -256,13 +335,17 @@ public class PagingRepositoryHelper {
     }
 
     public <T extends SearchCriteria> Predicate addSimpleListIn(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, Collection> getter) {
+        if (getter.apply(criteria) != null) {
+            guard(criteria, c -> getter.apply(c) != null && getter.apply(c).isEmpty());
+        }
         if (getter.apply(criteria) != null && !getter.apply(criteria).isEmpty()) {
+            Expression<Collection<?>> values = (Expression) value(cb, Collection.class, criteria, getter);
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.join(attrs[0]);
-                return cb.and(pred, enumPath.get(attrs[1]).in(getter.apply(criteria)));
+                return cb.and(pred, enumPath.get(attrs[1]).in(values));
             } else {
-                return cb.and(pred, rootEntity.get(attributeName).in(getter.apply(criteria)));
+                return cb.and(pred, rootEntity.get(attributeName).in(values));
             }
         } else if (getter.apply(criteria) != null) {
             return cb.isTrue(cb.literal(false));
@@ -272,20 +355,115 @@ public class PagingRepositoryHelper {
 
     public <T extends SearchCriteria> Predicate addSimpleListInOrNull(Predicate pred, CriteriaBuilder cb, Root rootEntity, T criteria, String attributeName, Function<T, Collection> getter) {
         if (getter.apply(criteria) != null) {
-            return cb.and(pred, cb.or(addSimpleListIn(pred, cb, rootEntity, criteria, attributeName, getter),
+            return cb.and(pred, cb.or(addSimpleListIn(cb.conjunction(), cb, rootEntity, criteria, attributeName, getter),
                     cb.isNull(rootEntity.get(attributeName).as(String.class))));
         }
         return pred;
     }
 
+    /**
+     * <p>The path of an attribute, {@code relation/attribute} through a relation.</p>
+     */
+    public <V> Path<V> getPath(Root<?> rootEntity, String attributeName) {
+        int slash = attributeName.indexOf('/');
+        if (slash > -1) {
+            return rootEntity.get(attributeName.substring(0, slash)).get(attributeName.substring(slash + 1));
+        }
+        return rootEntity.get(attributeName);
+    }
+
+    /**
+     * <p>Run the build of a query plan, the criteria values used by the predicates become named parameters of {@code bindings}.</p>
+     */
+    public <R> R withBindings(QueryBindings<?> bindings, Supplier<R> build) {
+        currentBindings.set(bindings);
+        try {
+            return build.get();
+        } finally {
+            currentBindings.remove();
+        }
+    }
+
+    /**
+     * <p>The expression of a criteria value, a parameter when a query plan is being built, a literal otherwise.</p>
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends SearchCriteria, V> Expression<V> value(CriteriaBuilder cb, Class<V> type, T criteria, Function<T, V> getter) {
+        QueryBindings<T> bindings = (QueryBindings<T>) currentBindings.get();
+        if (bindings == null) {
+            return cb.literal(getter.apply(criteria));
+        }
+        return bindings.bind(cb, type, getter);
+    }
+
+    /**
+     * <p>The structure of the predicate depends on {@code condition}, the plan being built is only reused when it gives the same result.</p>
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends SearchCriteria> void guard(T criteria, Function<T, Boolean> condition) {
+        QueryBindings<T> bindings = (QueryBindings<T>) currentBindings.get();
+        if (bindings != null) {
+            bindings.guard(condition, condition.apply(criteria));
+        }
+    }
+
+    private void inlined() {
+        QueryBindings<?> bindings = currentBindings.get();
+        if (bindings != null) {
+            bindings.markUncacheable();
+        }
+    }
+
+    /**
+     * <p>The names of the non null fields of a criteria, in alphabetical order.</p>
+     */
+    public String criteriaShape(SearchCriteria criteria) {
+        if (criteria == null) {
+            return "";
+        }
+        StringJoiner fields = new StringJoiner(",");
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(criteria.getClass())) {
+            if (descriptor.getReadMethod() != null && !"class".equals(descriptor.getName())
+                    && ReflectionUtils.invokeMethod(descriptor.getReadMethod(), criteria) != null) {
+                fields.add(descriptor.getName());
+            }
+        }
+        return fields.toString();
+    }
+
+    /**
+     * <p>Build a stable key from the non null values of a criteria, two criteria filtering the same way get the same key.</p>
+     */
+    public String criteriaKey(SearchCriteria criteria) {
+        if (criteria == null) {
+            return "";
+        }
+        TreeMap<String, Object> values = objectMapper.convertValue(criteria, new TypeReference<TreeMap<String, Object>>() {});
+        values.values().removeIf(Objects::isNull);
+        return criteria.getClass().getSimpleName() + values;
+    }
+
     public String surroundPercent(String root) {
         return '%' + root + '%';
     }
 
+    /**
+     * <p>Escape the like wildcards of a user value, with {@code '\'} as escape character.</p>
+     */
+    public String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public String getTableName(EntityManagerFactory entityManagerFactory, Class<?> entityClass) {
+        return ((AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getRuntimeMetamodels().getMappingMetamodel().getEntityDescriptor(entityClass)).getTableName();
+    }
+
     public Predicate applyExternalCheck(Predicate pred, CriteriaBuilder cb, Root rootEntity, String attributeName, List<Integer> ids) {
         if (ids.isEmpty()) {
             return cb.or(); // It's a false literal in criteria query... yes it is...
         } else {
+            inlined();
             String[] attrs = attributeName.split("/");
             if (attrs.length == 2) {
                 Path enumPath = rootEntity.get(attrs[0]);
@@ -3,126 +3,1175 @@ package com.ben.pagination.utils;
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public abstract class PagingRepositoryImpl <T, U extends SearchCriteria> implements PagingRepositoryCustom<T,U>{
+// Searches and counts run in read-only transactions, on a replica when there are some
+@Transactional(readOnly = true)
+public abstract class PagingRepositoryImpl <T, U extends SearchCriteria> implements PagingRepositoryCustom<T,U>, ReactivePagingRepositoryCustom<T,U> {
 
     @Autowired
     protected PagingRepositoryHelper helper;
 
+    @Autowired
+    protected CursorCodec cursorCodec;
+
+    @Autowired
+    protected CountCache countCache;
+
+    @Autowired
+    protected PaginationProperties properties;
+
+    @Autowired
+    protected QueryPlanCache planCache;
+
+    @Autowired
+    protected ParallelCountExecutor countExecutor;
+
+    @Autowired
+    protected ResultCache resultCache;
+
+    @Autowired
+    protected PaginationMetrics metrics;
+
+    @Autowired
+    protected ReactiveSearchScheduler reactiveScheduler;
+
+    @Autowired
+    protected CriteriaCompiler criteriaCompiler;
+
+    @Autowired
+    protected SortRegistry sortRegistry;
+
+    @Autowired
+    protected PageGuard pageGuard;
+
+    @Autowired
+    protected PagePrefetcher prefetcher;
+
+    @Autowired
+    protected SingleFlight singleFlight;
+
+    @Autowired
+    protected InMemorySearchEngine inMemoryEngine;
+
+    @Autowired
+    protected EntitySnapshots snapshots;
+
+    @Autowired
+    protected ChangeSignals changeSignals;
+
     @PersistenceContext
     protected EntityManager em;
     protected Class<T> entityClass;
+    protected CriteriaCompiler.CompiledCriteria<U> compiledCriteria;
+    // The timeout in seconds of the counts run by searchInParallel, on the thread of the count
+    private final ThreadLocal<Integer> countTimeout = new ThreadLocal<>();
 
     @PostConstruct
     protected abstract void setEntityClass();
-    protected abstract Predicate getPredicate(U criteria, CriteriaBuilder cb, Root<T> entityRoot);
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    protected void compileCriteria() {
+        Class<?>[] typeArguments = GenericTypeResolver.resolveTypeArguments(getClass(), PagingRepositoryImpl.class);
+        compiledCriteria = criteriaCompiler.compile((Class<U>) typeArguments[1]);
+        // The rows in memory are only filtered by the annotations of the criteria
+        boolean[] overridden = {false};
+        ReflectionUtils.doWithMethods(getClass(), method -> overridden[0] = true,
+                method -> method.getName().equals("getPredicate") && method.getDeclaringClass() != PagingRepositoryImpl.class);
+        if (!overridden[0]) inMemoryEngine.register(typeArguments[0], compiledCriteria.getLikeAttributes());
+    }
+
+    /**
+     * <p>The predicate of the criteria, compiled from the {@link Like}, {@link Equal}, {@link Between} and {@link In} annotations of its fields.</p>
+     * <em>Override it for the predicates the annotations can not express</em>.
+     */
+    protected Predicate getPredicate(U criteria, CriteriaBuilder cb, Root<T> entityRoot) {
+        return compiledCriteria.toPredicate(criteria, cb, entityRoot);
+    }
 
     @Override
     public Long count(U crit) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> q = cb.createQuery(Long.class);
+        BitSet inMemory = getInMemoryRows(crit);
+        if (inMemory != null) return (long) inMemory.cardinality();
+
+        QueryPlan<U, Long> plan = getPlan("count", crit, null, () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Long> q = cb.createQuery(Long.class);
 
-        // FROM
-        Root<T> entityRoot = q.from(entityClass);
-        q.select(cb.count(entityRoot));
-        // WHERE
-        Predicate pred = getPredicate(crit, cb, entityRoot);
-        q.where(pred);
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            q.select(cb.count(entityRoot));
+            // WHERE
+            Predicate pred = getPredicate(crit, cb, entityRoot);
+            q.where(pred);
+            // A row joined several times is counted once
+            if (hasCollectionJoin(q)) q.select(cb.countDistinct(entityRoot));
+            return q;
+        });
 
-        return em.createQuery(q).getSingleResult();
+        return metrics.timeQuery("count", plan.getShape(), () -> {
+            TypedQuery<Long> query = plan.createQuery(em, crit);
+            Integer timeout = countTimeout.get();
+            if (timeout != null) query.setHint(HibernateHints.HINT_TIMEOUT, timeout);
+            return query.getSingleResult();
+        });
+    }
+
+    @Override
+    public Long count(U crit, CountMode countMode) {
+        // An exact count in memory is cheaper than any count mode
+        BitSet inMemory = getInMemoryRows(crit);
+        if (inMemory != null) return (long) inMemory.cardinality();
+        return resultCache.get(entityClass, "count", crit, List.of(countMode),
+                () -> singleFlight.execute(entityClass, "count", crit, List.of(countMode), () -> countUncached(crit, countMode)));
+    }
+
+    /**
+     * <p>Build the plans of the first pages, unsorted and sorted on each indexed field, and run them {@code iterations}
+     * times, see {@link WarmUp}.</p>
+     * <em>The caches are bypassed so every iteration reaches the database. The total is the estimate of the table
+     * statistics, an exact count of the unfiltered table is a full scan per iteration</em>.
+     */
+    public void warmUp(int iterations) {
+        int pageSize = pageGuard.getPageSize(entityClass, null);
+        List<String> sortedFields = new ArrayList<>();
+        sortedFields.add(null);
+        sortRegistry.getSortFields(entityClass).values().stream()
+                .filter(SortRegistry.SortField::isIndexed)
+                .forEach(field -> sortedFields.add(field.getKey()));
+        for (int i = 0; i < iterations; i++) {
+            Long maxElement = countUncached(null, CountMode.ESTIMATED);
+            for (String sortedField : sortedFields) {
+                searchCounted(null, 0, pageSize, "asc", sortedField, CountMode.ESTIMATED, maxElement);
+            }
+            em.clear();
+        }
+    }
+
+    protected Long countUncached(U crit, CountMode countMode) {
+        switch (countMode) {
+            case CACHED:
+                return countCache.get(entityClass, crit, () -> count(crit));
+            case ESTIMATED:
+                // The table statistics only describe the unfiltered table
+                Long estimate = crit == null || crit.isEmpty() ? estimateCount() : null;
+                return estimate != null ? estimate : count(crit, CountMode.CACHED);
+            default:
+                return count(crit);
+        }
     }
 
     @Override
     public Page<T> search(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return search(crit, currentPage, pageSize, sortDirection, sortedField, properties.getCount().getMode());
+    }
 
-        // Total elements
-        Long maxElement = count(crit);
-
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<T> q = cb.createQuery(entityClass);
-
-        // FROM
-        Root<T> entityRoot = q.from(entityClass);
-        q.select(entityRoot);
-        // WHERE
-        Predicate pred = getPredicate(crit, cb, entityRoot);
-        q.where(pred);
-
-        // ORDER
-        if (sortDirection != null && sortedField != null) {
-            Order order;
-            if (sortedField.indexOf('.') > -1) {
-                Join<Object, Object> join = entityRoot.join(sortedField.substring(0, sortedField.indexOf('.')));
-                sortedField = sortedField.substring(sortedField.indexOf('.') + 1);
-                order = "desc".equalsIgnoreCase(sortDirection) ? cb.desc(join.get(sortedField)) : cb.asc(join.get(sortedField));
-            } else {
-                order = "desc".equalsIgnoreCase(sortDirection) ? cb.desc(entityRoot.get(sortedField)) : cb.asc(entityRoot.get(sortedField));
+    @Override
+    public Page<T> search(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        String sortKey = getSortKey(sortDirection, sortedField);
+        Page<T> page = prefetcher.get(entityClass, "search", crit, Arrays.asList(currentPage, pageSize, sortKey, countMode),
+                () -> searchCached(crit, currentPage, pageSize, sortDirection, sortedField, countMode));
+        // The next page is fetched while this one is read, keyed by what the client will ask for
+        if (currentPage != null && pageSize != null && page.hasNext()) {
+            prefetcher.prefetch(entityClass, "search", crit, Arrays.asList(currentPage + 1, pageSize, sortKey, countMode),
+                    () -> searchCached(crit, currentPage + 1, pageSize, sortDirection, sortedField, countMode));
+        }
+        return page;
+    }
+
+    protected Page<T> searchCached(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        List<?> extra = Arrays.asList(currentPage, pageSize, getSortKey(sortDirection, sortedField), countMode);
+        return resultCache.get(entityClass, "search", crit, extra,
+                () -> singleFlight.execute(entityClass, "search", crit, extra, () -> searchUncached(crit, currentPage, pageSize, sortDirection, sortedField, countMode)));
+    }
+
+    /**
+     * <p>Count the search result by each of {@code facets}, see {@link Facet}.</p>
+     * <em>The result is grouped by all the facets at once and rolled up to each facet, so a single query counts them all.
+     * When the combinations go past {@code pagination.facets.max-groups} each facet is grouped by its own query instead,
+     * which keeps its {@code max-groups} most frequent values</em>.
+     *
+     * @throws InvalidSearchException on a facet the entity does not have
+     */
+    @Override
+    public Map<String, List<FacetCount>> facets(U crit, List<String> facets) {
+        Map<String, SortRegistry.SortField> fields = sortRegistry.getSortFields(entityClass);
+        List<Facet> parsed = facets.stream().map(facet -> Facet.parse(facet, fields)).collect(Collectors.toList());
+        List<String> keys = parsed.stream().map(Facet::getKey).collect(Collectors.toList());
+        return resultCache.get(entityClass, "facets", crit, keys,
+                () -> singleFlight.execute(entityClass, "facets", crit, keys, () -> facetsUncached(crit, parsed)));
+    }
+
+    protected Map<String, List<FacetCount>> facetsUncached(U crit, List<Facet> facets) {
+        String kind = "facets:" + facets.stream().map(Facet::getKey).collect(Collectors.joining(","));
+        QueryPlan<U, Tuple> plan = getPlan(kind, crit, null, () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Tuple> q = cb.createTupleQuery();
+
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            List<Expression<?>> groups = new ArrayList<>();
+            for (Facet facet : facets) {
+                groups.add(facet.toExpression(cb, sortRegistry.getPath(entityRoot, facet.getField())));
+            }
+            // WHERE
+            q.where(getPredicate(crit, cb, entityRoot));
+            // A row joined several times is counted once in its group
+            Expression<Long> count = hasCollectionJoin(q) ? cb.countDistinct(entityRoot) : cb.count(entityRoot);
+            List<Selection<?>> selections = new ArrayList<>(groups);
+            selections.add(count);
+            q.multiselect(selections).groupBy(groups);
+            // A single facet keeps its most frequent values when there are too many
+            if (facets.size() == 1) q.orderBy(cb.desc(count));
+            return q;
+        });
+
+        int maxGroups = properties.getFacets().getMaxGroups();
+        List<Tuple> rows = metrics.timeQuery("facets", plan.getShape(),
+                () -> plan.createQuery(em, crit).setMaxResults(maxGroups + 1).getResultList());
+        if (rows.size() > maxGroups && facets.size() > 1) {
+            Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+            for (Facet facet : facets) {
+                counts.putAll(facetsUncached(crit, List.of(facet)));
+            }
+            return counts;
+        }
+
+        // Roll the groups up to each facet
+        Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+        for (int i = 0; i < facets.size(); i++) {
+            Map<Object, Long> buckets = new LinkedHashMap<>();
+            for (Tuple row : rows.subList(0, Math.min(rows.size(), maxGroups))) {
+                buckets.merge(row.get(i), row.get(facets.size(), Long.class), Long::sum);
             }
-            q.orderBy(order);
+            counts.put(facets.get(i).getKey(), buckets.entrySet().stream()
+                    .map(bucket -> new FacetCount(bucket.getKey(), bucket.getValue()))
+                    .sorted((a, b) -> Long.compare(b.getCount(), a.getCount()))
+                    .collect(Collectors.toList()));
         }
+        return counts;
+    }
+
+    /**
+     * <p>Search a page and count the result by each of {@code facets}, the facets replace the count query.</p>
+     * <em>Every row is in a single value of a facet, so the values of the first facet add up to the total of the page.
+     * The total is counted on its own only when that facet was cut at {@code pagination.facets.max-groups}</em>.
+     */
+    @Override
+    public FacetedPage<T> searchWithFacets(U crit, List<String> facets, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        Map<String, List<FacetCount>> counts = facets(crit, facets);
+        List<FacetCount> first = counts.isEmpty() ? null : counts.values().iterator().next();
+        Long maxElement = first != null && first.size() < properties.getFacets().getMaxGroups()
+                ? first.stream().mapToLong(FacetCount::getCount).sum()
+                : count(crit, CountMode.EXACT);
+        if (currentPage != null && pageSize != null) pageSize = pageGuard.getPageSize(entityClass, pageSize);
+        Page<T> page = searchCounted(crit, currentPage, pageSize, sortDirection, sortedField, CountMode.EXACT, maxElement);
+        return new FacetedPage<>(page, counts);
+    }
+
+    /**
+     * <p>Run the searches of a batch one after the other in the read-only transaction of the call, so on a single connection.</p>
+     * <em>The count is run once for the searches of the same criteria and count mode, and an identical search is run once</em>.
+     *
+     * @throws InvalidSearchException past {@code pagination.guardrails.max-batch-size} searches
+     */
+    @Override
+    public List<Page<T>> searchBatch(List<SearchRequest<U>> requests) {
+        if (requests.size() > properties.getGuardrails().getMaxBatchSize()) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.TOO_MANY_SEARCHES, "A batch holds at most " + properties.getGuardrails().getMaxBatchSize() + " searches");
+        }
+        Map<List<?>, Long> counts = new HashMap<>();
+        Map<List<?>, Page<T>> pages = new HashMap<>();
+        List<Page<T>> resList = new ArrayList<>(requests.size());
+        for (SearchRequest<U> request : requests) {
+            U crit = request.getCriteria();
+            CountMode countMode = request.getCountMode() != null ? request.getCountMode() : properties.getCount().getMode();
+            String criteriaKey = helper.criteriaKey(crit);
+            List<?> extra = Arrays.asList(request.getCurrentPage(), request.getPageSize(), getSortKey(request.getSortDirection(), request.getSortedField()), countMode);
+            resList.add(pages.computeIfAbsent(List.of(criteriaKey, extra), key -> resultCache.get(entityClass, "search", crit, extra, () -> {
+                if (countMode == CountMode.NONE || request.getCurrentPage() == null || request.getPageSize() == null) {
+                    return searchUncached(crit, request.getCurrentPage(), request.getPageSize(), request.getSortDirection(), request.getSortedField(), countMode);
+                }
+                Long maxElement = counts.computeIfAbsent(List.of(criteriaKey, countMode), c -> count(crit, countMode));
+                return searchCounted(crit, request.getCurrentPage(), pageGuard.getPageSize(entityClass, request.getPageSize()),
+                        request.getSortDirection(), request.getSortedField(), countMode, maxElement);
+            })));
+        }
+        return resList;
+    }
+
+    protected Page<T> searchUncached(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        if (countMode == CountMode.NONE) {
+            // Without a count the total only goes up to the next element
+            Slice<T> slice = searchSlice(crit, currentPage, pageSize, sortDirection, sortedField);
+            return new PageImpl<>(slice.getContent(), slice.getPageable(),
+                    slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0));
+        }
+
+        if (currentPage != null && pageSize != null) pageSize = pageGuard.getPageSize(entityClass, pageSize);
+        if (properties.getParallelCount().isEnabled() && currentPage != null && pageSize != null) {
+            try {
+                return searchInParallel(crit, currentPage, pageSize, sortDirection, sortedField, countMode);
+            } catch (RejectedExecutionException e) {
+                // Every count thread is busy, count and fetch one after the other
+            }
+        }
+
+        // Total elements
+        return searchCounted(crit, currentPage, pageSize, sortDirection, sortedField, countMode, count(crit, countMode));
+    }
 
-        TypedQuery<T> typedQuery = em.createQuery(q);
+    /**
+     * <p>Fetch the page of a search whose total is already counted.</p>
+     */
+    protected Page<T> searchCounted(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode, Long maxElement) {
+        List<T> resList;
         // LIMIT
         if (currentPage != null && pageSize != null) {
-            if (currentPage > maxElement / pageSize) currentPage = (int) Math.ceil(maxElement / pageSize);
-            typedQuery.setFirstResult((currentPage) * pageSize);
-            typedQuery.setMaxResults(pageSize);
+            // An estimated total is not reliable enough to clamp the requested page
+            if (countMode != CountMode.ESTIMATED && currentPage > getLastPage(maxElement, pageSize)) currentPage = getLastPage(maxElement, pageSize);
+            resList = getResultPage(crit, sortDirection, sortedField, (currentPage) * pageSize, pageSize);
+        } else {
+            resList = search(crit, sortDirection, sortedField);
         }
-        List<T> resList = typedQuery.getResultStream().distinct().collect(Collectors.toList());
 
         // Construct the returning page
-        Page<T> result;
-        if (sortDirection != null && sortedField != null) {
-            Sort.Direction direction = "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
-            result = new PageImpl<>(resList, PageRequest.of(currentPage == null ? 0 : currentPage, pageSize == null ? 25 : pageSize, direction, sortedField), maxElement);
-        } else {
-            result = new PageImpl<>(resList, PageRequest.of(currentPage == null ? 0 : currentPage, pageSize == null ? 25 : pageSize), maxElement);
+        return new PageImpl<>(resList, getPageable(currentPage, pageSize, sortDirection, sortedField), maxElement);
+    }
+
+    /**
+     * <p>Run the count on {@link ParallelCountExecutor} while the page is fetched, each on its own connection.</p>
+     * <em>A count slower than {@code pagination.parallel-count.timeout} is given up, the total of the page is then the estimate
+     * of the table statistics for an unfiltered search, else only goes up to the next element. Cancelling the future does not
+     * reach the statement, the timeout is set on the count query itself and the database stops it, rounded up to the second
+     * JDBC counts in</em>.
+     */
+    protected Page<T> searchInParallel(U crit, int currentPage, int pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        long timeout = properties.getParallelCount().getTimeout().toMillis();
+        int timeoutSeconds = (int) Math.max(1, (timeout + 999) / 1000);
+        CompletableFuture<Long> futureCount = countExecutor.submit(() -> {
+            countTimeout.set(timeoutSeconds);
+            try {
+                return count(crit, countMode);
+            } finally {
+                countTimeout.remove();
+            }
+        });
+
+        // LIMIT, one more row gives the next page when the total is unknown
+        List<T> resList = getResultPage(crit, sortDirection, sortedField, currentPage * pageSize, pageSize + 1);
+        boolean hasNext = resList.size() > pageSize;
+        if (hasNext) resList = resList.subList(0, pageSize);
+
+        Long maxElement;
+        try {
+            maxElement = futureCount.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            maxElement = getTimedOutCount(crit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            maxElement = null;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof QueryTimeoutException)) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            }
+            maxElement = getTimedOutCount(crit);
+        }
+
+        if (maxElement == null) {
+            maxElement = (long) currentPage * pageSize + resList.size() + (hasNext ? 1 : 0);
+        } else if (countMode != CountMode.ESTIMATED && currentPage > getLastPage(maxElement, pageSize)) {
+            // The page was past the end, fetch the one the sequential search would have clamped to
+            currentPage = getLastPage(maxElement, pageSize);
+            resList = getResultPage(crit, sortDirection, sortedField, currentPage * pageSize, pageSize);
+        }
+        return new PageImpl<>(resList, getPageable(currentPage, pageSize, sortDirection, sortedField), maxElement);
+    }
+
+    /**
+     * @return the estimate of the table statistics standing for a count given up, {@code null} when filtered
+     */
+    protected Long getTimedOutCount(U crit) {
+        return crit == null || crit.isEmpty() ? estimateCount() : null;
+    }
+
+    @Override
+    public <P> Page<P> search(U crit, Projection<P> projection, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return search(crit, projection, currentPage, pageSize, sortDirection, sortedField, properties.getCount().getMode());
+    }
+
+    @Override
+    public <P> Page<P> search(U crit, Projection<P> projection, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        List<?> extra = Arrays.asList(projection.getName(), projection.getFields(), currentPage, pageSize, getSortKey(sortDirection, sortedField), countMode);
+        return resultCache.get(entityClass, "projection", crit, extra,
+                () -> singleFlight.execute(entityClass, "projection", crit, extra,
+                        () -> searchProjectionUncached(crit, projection, currentPage, pageSize, sortDirection, sortedField, countMode)));
+    }
+
+    /**
+     * <p>Search only the columns of {@code projection}, the rows are never attached to the persistence context.</p>
+     */
+    protected <P> Page<P> searchProjectionUncached(U crit, Projection<P> projection, Integer currentPage, Integer pageSize, String sortDirection, String sortedField, CountMode countMode) {
+        Pageable pageable = getPageable(currentPage, pageGuard.getPageSize(entityClass, pageSize), sortDirection, sortedField);
+        int size = pageable.getPageSize();
+
+        if (countMode == CountMode.NONE) {
+            // LIMIT, without a count the total only goes up to the next element
+            List<P> resList = getProjectionPage(crit, projection, sortDirection, sortedField, (int) pageable.getOffset(), size + 1);
+            boolean hasNext = resList.size() > size;
+            if (hasNext) resList = resList.subList(0, size);
+            return new PageImpl<>(resList, pageable, pageable.getOffset() + resList.size() + (hasNext ? 1 : 0));
         }
-        return result;
+
+        // Total elements
+        Long maxElement = count(crit, countMode);
+
+        // LIMIT
+        int page = pageable.getPageNumber();
+        if (countMode != CountMode.ESTIMATED && page > getLastPage(maxElement, size)) page = getLastPage(maxElement, size);
+        List<P> resList = getProjectionPage(crit, projection, sortDirection, sortedField, page * size, size);
+        return new PageImpl<>(resList, getPageable(page, size, sortDirection, sortedField), maxElement);
+    }
+
+    @Override
+    public Slice<T> searchSlice(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        Pageable pageable = getPageable(currentPage, pageGuard.getPageSize(entityClass, pageSize), sortDirection, sortedField);
+
+        // LIMIT, one more row tells if there is a next slice
+        List<T> resList = getResultPage(crit, sortDirection, sortedField, (int) pageable.getOffset(), pageable.getPageSize() + 1);
+
+        boolean hasNext = resList.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? resList.subList(0, pageable.getPageSize()) : resList, pageable, hasNext);
     }
 
     @Override
     public List<T> search(U crit, String sortDirection, String sortedField) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<T> q = cb.createQuery(entityClass);
-
-        // FROM
-        Root<T> root = q.from(entityClass);
-        q.select(root);
-        // WHERE
-        Predicate pred = getPredicate(crit, cb, root);
-        q.where(pred);
-
-        // ORDER
-        if (sortDirection != null && sortedField != null) {
-            Order order;
-            if (sortedField.indexOf('.') > -1) {
-                Join<Object, Object> join = root.join(sortedField.substring(0, sortedField.indexOf('.')));
-                sortedField = sortedField.substring(sortedField.indexOf('.') + 1);
-                order = "desc".equalsIgnoreCase(sortDirection) ? cb.desc(join.get(sortedField)) : cb.asc(join.get(sortedField));
+        List<T> inMemory = getInMemoryPage(crit, sortDirection, sortedField, 0, Integer.MAX_VALUE);
+        if (inMemory != null) return inMemory;
+
+        QueryPlan<U, T> plan = getSearchPlan(crit, sortDirection, sortedField);
+        if (hasCollectionJoin(plan.getQuery())) metrics.recordDistinct(plan.getShape());
+
+        List<T> resList = metrics.timeQuery("page", plan.getShape(), () -> plan.createQuery(em, crit).getResultList());
+        metrics.recordPage(plan.getShape(), 0L, resList.size());
+        return resList;
+    }
+
+    /**
+     * <p>Stream the search result to {@code consumer} through a forward only cursor, whatever its size.</p>
+     * <em>The rows are fetched by {@code pagination.export.fetch-size} and the persistence context is cleared every
+     * {@code pagination.export.clear-every} rows, so the consumer must not keep them managed</em>.
+     *
+     * @return the number of exported rows
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long export(U crit, String sortDirection, String sortedField, Consumer<T> consumer) {
+        QueryPlan<U, T> plan = getSearchPlan(crit, sortDirection, sortedField);
+        org.hibernate.query.Query<T> query = plan.createQuery(em, crit).unwrap(org.hibernate.query.Query.class);
+        query.setFetchSize(pageGuard.getFetchSize(entityClass, properties.getExport().getFetchSize()));
+        query.setReadOnly(true);
+
+        long exported = metrics.timeQuery("export", plan.getShape(), () -> {
+            long count = 0;
+            try (ScrollableResults<T> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    consumer.accept(results.get());
+                    if (++count % properties.getExport().getClearEvery() == 0) {
+                        em.clear();
+                    }
+                }
+            }
+            return count;
+        });
+        metrics.recordPage(plan.getShape(), null, (int) Math.min(exported, Integer.MAX_VALUE));
+        return exported;
+    }
+
+    @Override
+    public Mono<Page<T>> searchReactive(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        return reactiveScheduler.fromSupplier(() -> search(crit, currentPage, pageSize, sortDirection, sortedField));
+    }
+
+    /**
+     * <p>Stream the search result row by row, a row is only fetched when the subscriber requests it.</p>
+     * <em>The cursor runs on an entity manager of its own outside of the Spring transactions, always on the primary,
+     * and is closed on completion, error or cancellation</em>.
+     */
+    @Override
+    public Flux<T> stream(U crit, String sortDirection, String sortedField) {
+        return Flux.<T, EntityStream<T>>generate(() -> {
+                    QueryPlan<U, T> plan = getSearchPlan(crit, sortDirection, sortedField);
+                    EntityStream<T> stream = new EntityStream<>(em.getEntityManagerFactory().createEntityManager(), properties.getExport().getClearEvery());
+                    try {
+                        stream.open(plan.createQuery(stream.getEntityManager(), crit), pageGuard.getFetchSize(entityClass, properties.getExport().getFetchSize()));
+                    } catch (RuntimeException e) {
+                        stream.close();
+                        throw e;
+                    }
+                    return stream;
+                }, (stream, sink) -> {
+                    if (stream.next()) {
+                        sink.next(stream.get());
+                    } else {
+                        sink.complete();
+                    }
+                    return stream;
+                }, EntityStream::close)
+                .subscribeOn(reactiveScheduler.getScheduler());
+    }
+
+    /**
+     * <p>Push the windows of {@link #changes} as they happen, an empty window is only pushed for the first watermark.</p>
+     * <em>The changes are looked for every {@code pagination.changes.poll-interval}, and {@code pagination.changes.settle}
+     * after a write of the application. The windows following a full one are fetched at once</em>.
+     */
+    @Override
+    public Flux<CursorPage<T>> changeStream(U crit, String since, Integer pageSize) {
+        AtomicReference<String> watermark = new AtomicReference<>(since);
+        Function<String, Mono<CursorPage<T>>> fetch = cursor -> reactiveScheduler.fromSupplier(() -> changes(crit, cursor, pageSize));
+        return Flux.merge(Flux.interval(Duration.ZERO, properties.getChanges().getPollInterval()).onBackpressureDrop(),
+                        changeSignals.signals(entityClass).onBackpressureLatest().delayElements(properties.getChanges().getSettle()))
+                .concatMap(tick -> fetch.apply(watermark.get())
+                        .expand(window -> window.isHasNext() ? fetch.apply(window.getNextCursor()) : Mono.empty())
+                        .filter(window -> !window.getNextCursor().equals(watermark.getAndSet(window.getNextCursor()))), 1);
+    }
+
+    protected TypedQuery<T> createSearchQuery(U crit, String sortDirection, String sortedField) {
+        return getSearchPlan(crit, sortDirection, sortedField).createQuery(em, crit);
+    }
+
+    protected QueryPlan<U, T> getSearchPlan(U crit, String sortDirection, String sortedField) {
+        List<SortRegistry.SortOrder> sortOrders = getSortOrders(sortDirection, sortedField);
+        return getPlan("search", crit, SortRegistry.toKey(sortOrders), () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<T> q = cb.createQuery(entityClass);
+
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            q.select(entityRoot);
+            // WHERE
+            Predicate pred = getPredicate(crit, cb, entityRoot);
+            q.where(pred);
+
+            // A row joined several times is returned once, paged searches go through getResultPage instead
+            if (hasCollectionJoin(q)) {
+                Path<Object> idPath = entityRoot.get(getIdAttributeName());
+                q.groupBy(idPath);
+                if (!sortOrders.isEmpty()) q.orderBy(getGroupedOrders(cb, entityRoot, idPath, sortOrders));
+                return q;
+            }
+
+            // ORDER
+            if (!sortOrders.isEmpty()) q.orderBy(getOrders(cb, entityRoot, sortOrders));
+            return q;
+        });
+    }
+
+    /**
+     * <p>Fetch a page of the search result, exactly {@code maxResults} long whatever the joins of the predicates.</p>
+     * <em>Without a collection join a row can not be duplicated and the page is fetched directly.
+     * Otherwise the ids of the page are selected first, grouped by id in the database, then the entities are fetched by id</em>.
+     */
+    protected List<T> getResultPage(U crit, String sortDirection, String sortedField, int firstResult, int maxResults) {
+        List<T> inMemory = getInMemoryPage(crit, sortDirection, sortedField, firstResult, maxResults);
+        if (inMemory != null) return inMemory;
+        if (pageGuard.isDeep(firstResult)) {
+            return getDeepResultPage(crit, sortDirection, sortedField, firstResult, maxResults);
+        }
+        QueryPlan<U, T> plan = getSearchPlan(crit, sortDirection, sortedField);
+        List<T> resList;
+        if (!hasCollectionJoin(plan.getQuery())) {
+            resList = metrics.timeQuery("page", plan.getShape(),
+                    () -> plan.createQuery(em, crit).setFirstResult(firstResult).setMaxResults(maxResults).getResultList());
+        } else {
+            metrics.recordDistinct(plan.getShape());
+            QueryPlan<U, Object> idPlan = getIdPlan(crit, sortDirection, sortedField);
+            resList = metrics.timeQuery("page", idPlan.getShape(), () -> findAllByIds(idPlan.createQuery(em, crit)
+                    .setFirstResult(firstResult)
+                    .setMaxResults(maxResults)
+                    .getResultList()));
+        }
+        metrics.recordPage(plan.getShape(), (long) firstResult, resList.size());
+        pageGuard.recordRows(entityClass, resList);
+        return resList;
+    }
+
+    /**
+     * <p>The rows matching the criteria in the table {@link InMemorySearchEngine} keeps of the entity.</p>
+     *
+     * @return {@code null} when the entity is not kept in memory, or a criteria can not be evaluated there
+     */
+    protected BitSet getInMemoryRows(U crit) {
+        InMemoryTable<T> table = inMemoryEngine.getTable(entityClass);
+        return table != null ? compiledCriteria.filter(crit, table) : null;
+    }
+
+    /**
+     * <p>Fetch a page from the table {@link InMemorySearchEngine} keeps of the entity, without querying the database.</p>
+     * <em>The page holds copies of the rows, a caller changing them does not change the table</em>.
+     *
+     * @return {@code null} when the entity is not kept in memory, or the criteria or the sort can not be evaluated there
+     */
+    protected List<T> getInMemoryPage(U crit, String sortDirection, String sortedField, int firstResult, int maxResults) {
+        InMemoryTable<T> table = inMemoryEngine.getTable(entityClass);
+        if (table == null) return null;
+        BitSet rows = compiledCriteria.filter(crit, table);
+        List<T> page = rows != null ? table.page(rows, getSortOrders(sortDirection, sortedField), firstResult, maxResults) : null;
+        return page != null ? snapshots.copyAll(page) : null;
+    }
+
+    /**
+     * <p>Fetch a page past {@code pagination.guardrails.max-offset} by seeking from the last row of the page before it,
+     * so the rows before the page are not read again.</p>
+     * <em>The row a previous deep page ended on is kept, a client paging forward only seeks. Otherwise the row before the
+     * page is found by an offset scan of the sort key and the id only, which an index on the sort field covers</em>.
+     *
+     * @throws InvalidSearchException when {@code pagination.guardrails.deep-page} is {@code REJECT} or the sort can not be sought
+     */
+    protected List<T> getDeepResultPage(U crit, String sortDirection, String sortedField, int firstResult, int maxResults) {
+        List<SortRegistry.SortOrder> sortOrders = getSortOrders(sortDirection, sortedField);
+        if (properties.getGuardrails().getDeepPage() == DeepPagePolicy.REJECT || !isSeekable(sortOrders)) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.DEEP_PAGE, "The offset " + firstResult + " is past " + properties.getGuardrails().getMaxOffset()
+                    + ", page with a continuation token instead");
+        }
+        String criteriaKey = helper.criteriaKey(crit);
+        String sortKey = (isSeekDesc(sortDirection, sortOrders) ? "desc:" : "asc:") + SortRegistry.toKey(sortOrders);
+        String anchor = pageGuard.getAnchor(entityClass, criteriaKey, sortKey, firstResult);
+        if (anchor == null) {
+            anchor = getAnchor(crit, sortDirection, sortOrders, firstResult - 1);
+            if (anchor == null) return new ArrayList<>();
+        }
+
+        List<Tuple> rows = getSeekPage(crit, anchor, maxResults, sortDirection, sortOrders);
+        // A page is fetched with or without its look-ahead row, keep where the next page starts in both cases
+        for (int i = Math.max(0, rows.size() - 2); i < rows.size(); i++) {
+            pageGuard.putAnchor(entityClass, criteriaKey, sortKey, firstResult + i + 1, getCursor(rows.get(i), sortOrders));
+        }
+        List<T> resList = rows.stream().map(row -> row.get(0, entityClass)).collect(Collectors.toList());
+        pageGuard.recordRows(entityClass, resList);
+        return resList;
+    }
+
+    /**
+     * <p>The continuation token of the row at {@code position} in the seek order, {@code null} past the last row.</p>
+     */
+    protected String getAnchor(U crit, String sortDirection, List<SortRegistry.SortOrder> sortOrders, int position) {
+        SortRegistry.SortOrder seekOrder = getSeekOrder(sortOrders);
+        boolean desc = isSeekDesc(sortDirection, sortOrders);
+        QueryPlan<U, Tuple> plan = getPlan("anchor", crit, (desc ? "desc:" : "asc:") + SortRegistry.toKey(sortOrders), () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Tuple> q = cb.createTupleQuery();
+
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            Path<?> idPath = entityRoot.get(getIdAttributeName());
+            Path<?> sortPath = seekOrder != null ? sortRegistry.getPath(entityRoot, seekOrder.getField()) : idPath;
+            q.multiselect(sortPath, idPath);
+            // WHERE
+            q.where(getPredicate(crit, cb, entityRoot));
+
+            if (hasCollectionJoin(q)) groupById(q, idPath, sortPath);
+
+            // ORDER, the order of the seek
+            Order idOrder = desc ? cb.desc(idPath) : cb.asc(idPath);
+            if (seekOrder != null) {
+                q.orderBy(desc ? cb.desc(sortPath) : cb.asc(sortPath), idOrder);
+            } else {
+                q.orderBy(idOrder);
+            }
+            return q;
+        });
+
+        List<Tuple> rows = metrics.timeQuery("anchor", plan.getShape(),
+                () -> plan.createQuery(em, crit).setFirstResult(position).setMaxResults(1).getResultList());
+        if (rows.isEmpty()) return null;
+        return cursorCodec.encode(seekOrder != null ? rows.get(0).get(0) : null, rows.get(0).get(1));
+    }
+
+    /**
+     * <p>Fetch a page of projected rows, through the ids of the page as {@link #getResultPage} does when a row can be joined several times.</p>
+     */
+    protected <P> List<P> getProjectionPage(U crit, Projection<P> projection, String sortDirection, String sortedField, int firstResult, int maxResults) {
+        if (pageGuard.isDeep(firstResult)) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.DEEP_PAGE, "The offset " + firstResult + " is past " + properties.getGuardrails().getMaxOffset()
+                    + ", narrow the criteria of the projection");
+        }
+        QueryPlan<U, Tuple> plan = getProjectionPlan(crit, projection, sortDirection, sortedField);
+        List<Tuple> rows;
+        if (!hasCollectionJoin(plan.getQuery())) {
+            rows = metrics.timeQuery("page", plan.getShape(),
+                    () -> plan.createQuery(em, crit).setFirstResult(firstResult).setMaxResults(maxResults).getResultList());
+        } else {
+            metrics.recordDistinct(plan.getShape());
+            QueryPlan<U, Object> idPlan = getIdPlan(crit, sortDirection, sortedField);
+            rows = metrics.timeQuery("page", idPlan.getShape(), () -> findProjectionsByIds(projection, idPlan.createQuery(em, crit)
+                    .setFirstResult(firstResult)
+                    .setMaxResults(maxResults)
+                    .getResultList()));
+        }
+        metrics.recordPage(plan.getShape(), (long) firstResult, rows.size());
+        return rows.stream().map(projection::map).collect(Collectors.toList());
+    }
+
+    protected QueryPlan<U, Tuple> getProjectionPlan(U crit, Projection<?> projection, String sortDirection, String sortedField) {
+        List<SortRegistry.SortOrder> sortOrders = getSortOrders(sortDirection, sortedField);
+        return getPlan("projection:" + String.join(",", projection.getFields()), crit, SortRegistry.toKey(sortOrders), () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Tuple> q = cb.createTupleQuery();
+
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            q.multiselect(getProjectionSelections(entityRoot, projection));
+            // WHERE
+            Predicate pred = getPredicate(crit, cb, entityRoot);
+            q.where(pred);
+
+            // ORDER
+            if (!sortOrders.isEmpty()) q.orderBy(getOrders(cb, entityRoot, sortOrders));
+            return q;
+        });
+    }
+
+    /**
+     * <p>Fetch projected rows by id, in the order of {@code ids}.</p>
+     */
+    protected List<Tuple> findProjectionsByIds(Projection<?> projection, List<?> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        QueryPlan<U, Tuple> plan = getPlan("projectionByIds:" + String.join(",", projection.getFields()), null, null, () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Tuple> q = cb.createTupleQuery();
+
+            Root<T> entityRoot = q.from(entityClass);
+            Path<Object> idPath = entityRoot.get(getIdAttributeName());
+            List<Selection<?>> selections = getProjectionSelections(entityRoot, projection);
+            selections.add(idPath.alias("projectionId"));
+            q.multiselect(selections);
+            q.where(idPath.in((Expression) cb.parameter(Collection.class, "ids")));
+            return q;
+        });
+
+        Map<Object, Tuple> byId = new HashMap<>();
+        for (Tuple row : plan.createQuery(em, null).setParameter("ids", ids).getResultList()) {
+            byId.put(row.get("projectionId"), row);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    protected List<Selection<?>> getProjectionSelections(Root<T> root, Projection<?> projection) {
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : projection.getFields()) {
+            selections.add(getSortPath(root, field).alias(field));
+        }
+        return selections;
+    }
+
+    protected QueryPlan<U, Object> getIdPlan(U crit, String sortDirection, String sortedField) {
+        List<SortRegistry.SortOrder> sortOrders = getSortOrders(sortDirection, sortedField);
+        return getPlan("searchIds", crit, SortRegistry.toKey(sortOrders), () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Object> q = cb.createQuery(Object.class);
+
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            Path<Object> idPath = entityRoot.get(getIdAttributeName());
+            q.select(idPath);
+            // WHERE
+            Predicate pred = getPredicate(crit, cb, entityRoot);
+            q.where(pred);
+            q.groupBy(idPath);
+
+            // ORDER
+            q.orderBy(sortOrders.isEmpty() ? List.of(cb.asc(idPath)) : getGroupedOrders(cb, entityRoot, idPath, sortOrders));
+            return q;
+        });
+    }
+
+    /**
+     * <p>The orders of a query grouped by id, a row joined several times is sorted on its least value ascending and its
+     * greatest descending.</p>
+     */
+    protected List<Order> getGroupedOrders(CriteriaBuilder cb, Root<T> root, Path<Object> idPath, List<SortRegistry.SortOrder> sortOrders) {
+        List<Order> orders = new ArrayList<>();
+        for (SortRegistry.SortOrder sortOrder : sortOrders) {
+            Expression sortPath = sortOrder.getField().isId() ? idPath : sortRegistry.getPath(root, sortOrder.getField());
+            if (sortOrder.getField().isId()) {
+                orders.add(sortOrder.isDesc() ? cb.desc(sortPath) : cb.asc(sortPath));
             } else {
-                order = "desc".equalsIgnoreCase(sortDirection) ? cb.desc(root.get(sortedField)) : cb.asc(root.get(sortedField));
+                orders.add(sortOrder.isDesc() ? cb.desc(cb.greatest(sortPath)) : cb.asc(cb.least(sortPath)));
             }
-            q.orderBy(order);
         }
+        return orders;
+    }
+
+    /**
+     * <p>Return a row joined several times once by grouping on its id and its sort value, the only columns selected
+     * besides the entity.</p>
+     * <em>Not a {@code DISTINCT}: MySQL rejects it ordered on a column of a joined table (error 3065)</em>.
+     */
+    protected void groupById(CriteriaQuery<?> q, Path<?> idPath, Path<?> sortPath) {
+        q.groupBy(sortPath == null || sortPath == idPath ? List.<Expression<?>>of(idPath) : List.<Expression<?>>of(idPath, sortPath));
+    }
+
+    /**
+     * <p>Fetch entities by id, in the order of {@code ids}.</p>
+     */
+    protected List<T> findAllByIds(List<?> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        QueryPlan<U, T> plan = getPlan("byIds", null, null, () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<T> q = cb.createQuery(entityClass);
 
-        TypedQuery<T> typedQuery = em.createQuery(q);
+            Root<T> entityRoot = q.from(entityClass);
+            q.select(entityRoot);
+            q.where(entityRoot.get(getIdAttributeName()).in((Expression) cb.parameter(Collection.class, "ids")));
+            return q;
+        });
 
-        return typedQuery.getResultStream().distinct().collect(Collectors.toList());
+        PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Map<Object, T> byId = new HashMap<>();
+        for (T entity : plan.createQuery(em, null).setParameter("ids", ids).getResultList()) {
+            byId.put(persistenceUnitUtil.getIdentifier(entity), entity);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * <p>A join on a collection attribute can return the same row several times.</p>
+     */
+    protected boolean hasCollectionJoin(CriteriaQuery<?> q) {
+        for (Root<?> root : q.getRoots()) {
+            for (Join<?, ?> join : root.getJoins()) {
+                if (join.getAttribute().isCollection()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>Get the plan of a query from the plan cache, {@code build} is only called for a criteria shape not seen yet.</p>
+     * <em>The criteria values read by the predicates of {@code build} are bound as named parameters, see {@link PagingRepositoryHelper#value}</em>.
+     */
+    protected <R> QueryPlan<U, R> getPlan(String kind, U crit, String sort, Supplier<CriteriaQuery<R>> build) {
+        String filterShape = compiledCriteria.getFilterShape(entityClass, crit);
+        String fields = helper.criteriaShape(crit) + (filterShape.isEmpty() ? "" : ";" + filterShape);
+        QueryShape shape = new QueryShape(entityClass, kind, fields, sort);
+        return planCache.get(shape, crit, () -> {
+            QueryBindings<U> bindings = new QueryBindings<>();
+            CriteriaQuery<R> q = metrics.timePlanBuild(shape, () -> helper.withBindings(bindings, build));
+            return new QueryPlan<>(shape, q, bindings);
+        });
+    }
+
+    /**
+     * @throws InvalidSearchException on a field {@link SortRegistry} does not allow
+     */
+    protected List<SortRegistry.SortOrder> getSortOrders(String sortDirection, String sortedField) {
+        return sortRegistry.getSortOrders(entityClass, sortDirection, sortedField);
+    }
+
+    protected String getSortKey(String sortDirection, String sortedField) {
+        return SortRegistry.toKey(getSortOrders(sortDirection, sortedField));
+    }
+
+    protected List<Order> getOrders(CriteriaBuilder cb, Root<T> root, List<SortRegistry.SortOrder> sortOrders) {
+        List<Order> orders = new ArrayList<>(sortOrders.size());
+        for (SortRegistry.SortOrder sortOrder : sortOrders) {
+            Path<?> sortPath = sortRegistry.getPath(root, sortOrder.getField());
+            orders.add(sortOrder.isDesc() ? cb.desc(sortPath) : cb.asc(sortPath));
+        }
+        return orders;
+    }
+
+    /**
+     * <p>The index of the last page, the first one when there is no element.</p>
+     */
+    protected int getLastPage(long maxElement, int pageSize) {
+        return maxElement == 0 ? 0 : (int) ((maxElement - 1) / pageSize);
+    }
+
+    protected Pageable getPageable(Integer currentPage, Integer pageSize, String sortDirection, String sortedField) {
+        int page = currentPage == null ? 0 : currentPage;
+        int size = pageSize == null ? 25 : pageSize;
+        List<SortRegistry.SortOrder> sortOrders = getSortOrders(sortDirection, sortedField);
+        if (!sortOrders.isEmpty()) {
+            return PageRequest.of(page, size, Sort.by(sortOrders.stream()
+                    .map(sortOrder -> new Sort.Order(sortOrder.isDesc() ? Sort.Direction.DESC : Sort.Direction.ASC, sortOrder.getField().getKey()))
+                    .collect(Collectors.toList())));
+        }
+        return PageRequest.of(page, size);
+    }
+
+    /**
+     * <p>Read the row estimate MySQL keeps for the entity table, {@code null} when there is none.</p>
+     * <em>It is refreshed by {@code ANALYZE TABLE} and can be off by a few percents on InnoDB</em>.
+     */
+    protected Long estimateCount() {
+        String tableName = helper.getTableName(em.getEntityManagerFactory(), entityClass);
+        List<?> rows = em.createNativeQuery("SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = :tableName")
+                .setParameter("tableName", tableName)
+                .getResultList();
+        return rows.isEmpty() || rows.get(0) == null ? null : ((Number) rows.get(0)).longValue();
+    }
+
+    @Override
+    public CursorPage<T> searchAfter(U crit, String cursor, Integer pageSize, String sortDirection, String sortedField) {
+        String sortKey = getSortKey(sortDirection, sortedField);
+        CursorPage<T> window = prefetcher.get(entityClass, "seek", crit, Arrays.asList(cursor, pageSize, sortDirection, sortKey),
+                () -> searchAfterUncached(crit, cursor, pageSize, sortDirection, sortedField));
+        // The next window is fetched while this one is read
+        if (window.isHasNext()) {
+            prefetcher.prefetch(entityClass, "seek", crit, Arrays.asList(window.getNextCursor(), pageSize, sortDirection, sortKey),
+                    () -> searchAfterUncached(crit, window.getNextCursor(), pageSize, sortDirection, sortedField));
+        }
+        return window;
+    }
+
+    protected CursorPage<T> searchAfterUncached(U crit, String cursor, Integer pageSize, String sortDirection, String sortedField) {
+        int size = pageGuard.getPageSize(entityClass, pageSize);
+        List<SortRegistry.SortOrder> sortOrders = getSortOrders(sortDirection, sortedField);
+
+        // LIMIT, one more row tells if there is a next window
+        List<Tuple> rows = getSeekPage(crit, cursor, size + 1, sortDirection, sortOrders);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
+
+        List<T> resList = rows.stream().map(row -> row.get(0, entityClass)).collect(Collectors.toList());
+        pageGuard.recordRows(entityClass, resList);
+        String nextCursor = hasNext ? getCursor(rows.get(rows.size() - 1), sortOrders) : null;
+        return new CursorPage<>(resList, size, nextCursor, hasNext);
+    }
+
+    /**
+     * <p>Fetch the rows matching {@code crit} inserted or updated after the watermark {@code since}, in the order of their change.</p>
+     * <em>The rows are sought on {@code (pagination.changes.field, id)}, a range scan of its index. The next watermark is never
+     * {@code null}, without {@code since} it is the current one and no row is returned: ask for it before the first search.
+     * The rows changed in the last {@code pagination.changes.settle} are held back, a transaction committing late could
+     * otherwise slip a change behind the watermark. The cutoff is read from the clock of the database which stamps the
+     * rows, the clock of the instance can drift from it. A row can be sent twice, a deleted row or one that stopped
+     * matching is not sent</em>.
+     */
+    @Override
+    public CursorPage<T> changes(U crit, String since, Integer pageSize) {
+        int size = pageGuard.getPageSize(entityClass, pageSize);
+        return singleFlight.execute(entityClass, "changes", crit, Arrays.asList(since, size), () -> changesUncached(crit, since, size));
+    }
+
+    protected CursorPage<T> changesUncached(U crit, String since, int size) {
+        List<SortRegistry.SortOrder> sortOrders = getChangeOrders();
+        Instant settled = getDatabaseTime().minus(properties.getChanges().getSettle());
+        if (since == null) {
+            return new CursorPage<>(List.of(), size, cursorCodec.encode(settled, 0L), false);
+        }
+
+        List<Tuple> rows = getSeekPage(crit, since, size + 1, "asc", sortOrders);
+        // The unsettled rows are last, a later call sends them
+        int settledRows = 0;
+        while (settledRows < rows.size()) {
+            Instant changed = rows.get(settledRows).get(1, Instant.class);
+            if (changed != null && !changed.isBefore(settled)) break;
+            settledRows++;
+        }
+        boolean hasNext = settledRows > size;
+        rows = rows.subList(0, Math.min(settledRows, size));
+
+        List<T> resList = rows.stream().map(row -> row.get(0, entityClass)).collect(Collectors.toList());
+        pageGuard.recordRows(entityClass, resList);
+        String nextCursor = rows.isEmpty() ? since : getCursor(rows.get(rows.size() - 1), sortOrders);
+        return new CursorPage<>(resList, size, nextCursor, hasNext);
+    }
+
+    /**
+     * <p>The current time of the database, read in UTC as {@code hibernate.jdbc.time_zone} is.</p>
+     */
+    protected Instant getDatabaseTime() {
+        return (Instant) em.createNativeQuery("SELECT CURRENT_TIMESTAMP(6) AS now")
+                .unwrap(NativeQuery.class)
+                .addScalar("now", Instant.class)
+                .getSingleResult();
+    }
+
+    /**
+     * @throws IllegalStateException when the entity has no {@code pagination.changes.field} timestamp
+     */
+    protected List<SortRegistry.SortOrder> getChangeOrders() {
+        String field = properties.getChanges().getField();
+        EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        if (entityType.getAttributes().stream().noneMatch(attribute -> attribute.getName().equals(field) && attribute.getJavaType() == Instant.class)) {
+            throw new IllegalStateException(entityType.getName() + " has no " + field + " instant, its changes can not be followed");
+        }
+        return getSortOrders("asc", field);
+    }
+
+    /**
+     * <p>Fetch the {@code (entity, sort value, id)} rows following {@code cursor}, from the first one without cursor.</p>
+     */
+    protected List<Tuple> getSeekPage(U crit, String cursor, int maxResults, String sortDirection, List<SortRegistry.SortOrder> sortOrders) {
+        SortRegistry.SortOrder seekOrder = getSeekOrder(sortOrders);
+        boolean desc = isSeekDesc(sortDirection, sortOrders);
+        CursorCodec.Cursor last = cursor != null ? cursorCodec.decode(cursor) : null;
+
+        String kind = last == null ? "seek" : last.isSortValueNull() ? "seekAfterNull" : "seekAfter";
+        QueryPlan<U, Tuple> plan = getPlan(kind, crit, (desc ? "desc:" : "asc:") + SortRegistry.toKey(sortOrders), () -> {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Tuple> q = cb.createTupleQuery();
+
+            // FROM
+            Root<T> entityRoot = q.from(entityClass);
+            Path<?> idPath = entityRoot.get(getIdAttributeName());
+            Path<?> sortPath = seekOrder != null ? sortRegistry.getPath(entityRoot, seekOrder.getField()) : null;
+            q.multiselect(entityRoot, sortPath != null ? sortPath : idPath, idPath);
+            // WHERE
+            Predicate pred = getPredicate(crit, cb, entityRoot);
+            if (last != null) {
+                Expression<?> lastValue = sortPath != null && !last.isSortValueNull() ? cb.parameter(sortPath.getJavaType(), "seekValue") : null;
+                pred = cb.and(pred, getSeekPredicate(cb, sortPath, idPath, lastValue, cb.parameter(idPath.getJavaType(), "seekId"), desc));
+            }
+            q.where(pred);
+
+            if (hasCollectionJoin(q)) groupById(q, idPath, sortPath);
+
+            // ORDER, the id is the tiebreaker so the seek is stable on duplicated sort keys
+            Order idOrder = desc ? cb.desc(idPath) : cb.asc(idPath);
+            if (sortPath != null) {
+                q.orderBy(desc ? cb.desc(sortPath) : cb.asc(sortPath), idOrder);
+            } else {
+                q.orderBy(idOrder);
+            }
+            return q;
+        });
+
+        TypedQuery<Tuple> typedQuery = plan.createQuery(em, crit);
+        if (last != null) {
+            typedQuery.setParameter("seekId", cursorCodec.convert(last.getId(), plan.getParameterType("seekId")));
+            if (seekOrder != null && !last.isSortValueNull()) {
+                typedQuery.setParameter("seekValue", cursorCodec.convert(last.getSortValue(), plan.getParameterType("seekValue")));
+            }
+        }
+        List<Tuple> rows = metrics.timeQuery("page", plan.getShape(), () -> typedQuery.setMaxResults(maxResults).getResultList());
+        metrics.recordPage(plan.getShape(), null, rows.size());
+        return rows;
+    }
+
+    /**
+     * <p>A seek compares a single sort value and the id, sorted in the same direction.</p>
+     */
+    protected boolean isSeekable(List<SortRegistry.SortOrder> sortOrders) {
+        return sortOrders.size() < 2 || sortOrders.size() == 2 && sortOrders.get(0).isDesc() == sortOrders.get(1).isDesc();
+    }
+
+    /**
+     * @return the sort field of a seek, {@code null} when it is on the id alone, sorted or not
+     * @throws InvalidSearchException when the sort can not be sought
+     */
+    protected SortRegistry.SortOrder getSeekOrder(List<SortRegistry.SortOrder> sortOrders) {
+        if (!isSeekable(sortOrders)) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.SORT, "The continuation token only holds a single sort field, sorted in the direction of the id");
+        }
+        return sortOrders.size() == 2 ? sortOrders.get(0) : null;
+    }
+
+    protected boolean isSeekDesc(String sortDirection, List<SortRegistry.SortOrder> sortOrders) {
+        return sortOrders.isEmpty() ? "desc".equalsIgnoreCase(sortDirection) : sortOrders.get(0).isDesc();
+    }
+
+    /**
+     * <p>The continuation token of a row of {@link #getSeekPage}.</p>
+     */
+    protected String getCursor(Tuple row, List<SortRegistry.SortOrder> sortOrders) {
+        return cursorCodec.encode(getSeekOrder(sortOrders) != null ? row.get(1) : null, row.get(2));
+    }
+
+    /**
+     * <p>Resolve the path of a field {@link SortRegistry} knows, a dotted field ({@code course.name}) is read through a left join.</p>
+     */
+    protected Path<?> getSortPath(Root<T> root, String sortedField) {
+        SortRegistry.SortField field = sortRegistry.getSortFields(entityClass).get(sortedField);
+        if (field == null) {
+            throw new InvalidSearchException(InvalidSearchException.Reason.SORT, "Unknown field " + sortedField + ", the fields are " + sortRegistry.getSortFields(entityClass).keySet());
+        }
+        return sortRegistry.getPath(root, field);
+    }
+
+    protected String getIdAttributeName() {
+        EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
+    /**
+     * <p>Build the {@code (sortedField, id) > (?, ?)} seek predicate, reversed for a descending sort.</p>
+     * <em>Null sort keys are ordered first ascending and last descending, as MySQL does</em>.
+     */
+    protected Predicate getSeekPredicate(CriteriaBuilder cb, Path sortPath, Path idPath, Expression lastValue, Expression lastId, boolean desc) {
+        Predicate afterId = desc ? cb.lessThan(idPath, lastId) : cb.greaterThan(idPath, lastId);
+        if (sortPath == null) {
+            return afterId;
+        }
+        if (lastValue == null) {
+            Predicate sameKey = cb.and(cb.isNull(sortPath), afterId);
+            return desc ? sameKey : cb.or(sameKey, cb.isNotNull(sortPath));
+        }
+        Predicate seek = cb.or(desc ? cb.lessThan(sortPath, lastValue) : cb.greaterThan(sortPath, lastValue),
+                cb.and(cb.equal(sortPath, lastValue), afterId));
+        return desc ? cb.or(seek, cb.isNull(sortPath)) : seek;
     }
 }
@@ -0,0 +1,56 @@
+package com.ben.pagination.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <p>The bounded pool the counts run on while the page is fetched, see {@code pagination.parallel-count}.</p>
+ * <em>Every running count holds a connection of its own, the pool size keeps them from starving the page queries</em>.
+ */
+@Component
+public class ParallelCountExecutor {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate readOnly;
+
+    @PostConstruct
+    protected void start() {
+        PaginationProperties.ParallelCount config = properties.getParallelCount();
+        executor = new ThreadPoolExecutor(config.getPoolSize(), config.getPoolSize(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), new CustomizableThreadFactory("pagination-count-"));
+        executor.allowCoreThreadTimeOut(true);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @PreDestroy
+    protected void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * <p>Run {@code task} in a read-only transaction of its own, on a replica when there are some.</p>
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when the pool and its queue are full
+     */
+    public <V> CompletableFuture<V> submit(Supplier<V> task) {
+        return CompletableFuture.supplyAsync(() -> readOnly.execute(status -> task.get()), executor);
+    }
+}
@@ -0,0 +1,90 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.Tuple;
+import lombok.Getter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>The fields a projected search selects and how a selected row becomes a result.</p>
+ * <em>The fields of a projection class are its record components, or its fields for a class with an all-args constructor
+ * ({@code @Value}), and are read from the entity attributes of the same name</em>.
+ */
+@Getter
+public class Projection<P> {
+
+    private static final Map<Class<?>, Projection<?>> BY_CLASS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final List<String> fields;
+    private final Function<Tuple, P> mapper;
+
+    private Projection(String name, List<String> fields, Function<Tuple, P> mapper) {
+        this.name = name;
+        this.fields = fields;
+        this.mapper = mapper;
+    }
+
+    public static Projection<Map<String, Object>> of(List<String> fields) {
+        return new Projection<>("fields", List.copyOf(fields), tuple -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            return row;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> Projection<P> of(Class<P> projectionClass) {
+        return (Projection<P>) BY_CLASS.computeIfAbsent(projectionClass, Projection::create);
+    }
+
+    private static <P> Projection<P> create(Class<P> projectionClass) {
+        List<String> fields;
+        Class<?>[] types;
+        if (projectionClass.isRecord()) {
+            RecordComponent[] components = projectionClass.getRecordComponents();
+            fields = Arrays.stream(components).map(RecordComponent::getName).collect(Collectors.toList());
+            types = Arrays.stream(components).map(RecordComponent::getType).toArray(Class[]::new);
+        } else {
+            Field[] declared = Arrays.stream(projectionClass.getDeclaredFields())
+                    .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                    .toArray(Field[]::new);
+            fields = Arrays.stream(declared).map(Field::getName).collect(Collectors.toList());
+            types = Arrays.stream(declared).map(Field::getType).toArray(Class[]::new);
+        }
+        Constructor<P> constructor;
+        try {
+            constructor = projectionClass.getDeclaredConstructor(types);
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(projectionClass.getSimpleName() + " has no constructor taking all its fields", e);
+        }
+        return new Projection<>(projectionClass.getName(), List.copyOf(fields), tuple -> {
+            Object[] args = new Object[fields.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = tuple.get(fields.get(i));
+            }
+            try {
+                return constructor.newInstance(args);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to create " + projectionClass.getSimpleName(), e);
+            }
+        });
+    }
+
+    public P map(Tuple tuple) {
+        return mapper.apply(tuple);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.ParameterExpression;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>The named parameters of a query plan and how to read their values from a criteria.</p>
+ * <em>Guards record the conditions on the values (a non empty list, a valid boolean...) the plan structure depends on,
+ * a plan is only reused for a criteria passing the same guards</em>.
+ */
+public class QueryBindings<U> {
+
+    private final Map<String, Function<U, ?>> binders = new LinkedHashMap<>();
+    private final List<Function<U, Boolean>> guards = new ArrayList<>();
+    private final List<Boolean> expectedGuards = new ArrayList<>();
+    @Getter
+    private boolean cacheable = true;
+
+    public <V> ParameterExpression<V> bind(CriteriaBuilder cb, Class<V> type, Function<U, V> binder) {
+        String name = "p" + binders.size();
+        binders.put(name, binder);
+        return cb.parameter(type, name);
+    }
+
+    public void guard(Function<U, Boolean> condition, Boolean expected) {
+        guards.add(condition);
+        expectedGuards.add(expected);
+    }
+
+    /**
+     * <p>A value has been inlined in the query, the plan can not be reused for another criteria.</p>
+     */
+    public void markUncacheable() {
+        cacheable = false;
+    }
+
+    public boolean matches(U criteria) {
+        for (int i = 0; i < guards.size(); i++) {
+            if (!expectedGuards.get(i).equals(guards.get(i).apply(criteria))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void applyTo(Query query, U criteria) {
+        binders.forEach((name, binder) -> query.setParameter(name, binder.apply(criteria)));
+    }
+}
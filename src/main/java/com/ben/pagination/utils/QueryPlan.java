@@ -0,0 +1,33 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.ParameterExpression;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * <p>A criteria query built once for a {@link QueryShape}, every execution only binds the values of its criteria.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class QueryPlan<U, R> {
+    private QueryShape shape;
+    private CriteriaQuery<R> query;
+    private QueryBindings<U> bindings;
+
+    public TypedQuery<R> createQuery(EntityManager em, U criteria) {
+        TypedQuery<R> typedQuery = em.createQuery(query);
+        bindings.applyTo(typedQuery, criteria);
+        return typedQuery;
+    }
+
+    public Class<?> getParameterType(String name) {
+        return query.getParameters().stream()
+                .filter(parameter -> name.equals(parameter.getName()))
+                .findFirst()
+                .<Class<?>>map(ParameterExpression::getJavaType)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown parameter " + name));
+    }
+}
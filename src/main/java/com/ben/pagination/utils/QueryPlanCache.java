@@ -0,0 +1,66 @@
+package com.ben.pagination.utils;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>Query plans by {@link QueryShape}, the least recently used ones are evicted above {@code pagination.plan-cache.max-size}.</p>
+ */
+@Service
+public class QueryPlanCache {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    private final Map<QueryShape, QueryPlan<?, ?>> plans = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public <U, R> QueryPlan<U, R> get(QueryShape shape, U criteria, Supplier<QueryPlan<U, R>> builder) {
+        QueryPlan<U, R> plan;
+        synchronized (plans) {
+            plan = (QueryPlan<U, R>) plans.get(shape);
+        }
+        if (plan != null && plan.getBindings().matches(criteria)) {
+            hits.increment();
+            return plan;
+        }
+        misses.increment();
+        plan = builder.get();
+        if (plan.getBindings().isCacheable()) {
+            synchronized (plans) {
+                plans.put(shape, plan);
+                Iterator<QueryShape> eldest = plans.keySet().iterator();
+                while (plans.size() > properties.getPlanCache().getMaxSize() && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        return plan;
+    }
+
+    public Stats getStats() {
+        synchronized (plans) {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), plans.size());
+        }
+    }
+
+    @Value
+    public static class Stats {
+        long hits;
+        long misses;
+        long evictions;
+        int size;
+    }
+}
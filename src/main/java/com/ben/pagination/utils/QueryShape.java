@@ -0,0 +1,14 @@
+package com.ben.pagination.utils;
+
+import lombok.Value;
+
+/**
+ * <p>What makes two searches run the same query: the entity, the kind of query, the non null criteria fields and the sort.</p>
+ */
+@Value
+public class QueryShape {
+    Class<?> entityClass;
+    String kind;
+    String fields;
+    String sort;
+}
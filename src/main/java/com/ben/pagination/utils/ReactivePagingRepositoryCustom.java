@@ -0,0 +1,18 @@
+package com.ben.pagination.utils;
+
+import org.springframework.data.domain.Page;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>The non blocking variant of {@link PagingRepositoryCustom}, the queries run on {@link ReactiveSearchScheduler}.</p>
+ * <em>Kept out of the Spring Data repository interfaces, JPA repositories can not declare reactive methods</em>.
+ */
+public interface ReactivePagingRepositoryCustom <T, U extends SearchCriteria> {
+
+    Mono<Page<T>> searchReactive(U crit, Integer currentPage, Integer pageSize, String sortDirection, String sortedField);
+
+    Flux<T> stream(U crit, String sortDirection, String sortedField);
+
+    Flux<CursorPage<T>> changeStream(U crit, String since, Integer pageSize);
+}
@@ -0,0 +1,54 @@
+package com.ben.pagination.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>The bounded elastic scheduler the reactive searches block on, see {@code pagination.reactive}.</p>
+ * <em>JDBC stays blocking, the scheduler frees the servlet threads and caps how many searches hold a connection at once</em>.
+ */
+@Component
+public class ReactiveSearchScheduler {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Scheduler scheduler;
+    private TransactionTemplate readOnly;
+
+    @PostConstruct
+    protected void start() {
+        PaginationProperties.Reactive config = properties.getReactive();
+        scheduler = Schedulers.newBoundedElastic(config.getThreadCap(), config.getQueueCapacity(), "pagination-reactive");
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @PreDestroy
+    protected void stop() {
+        scheduler.dispose();
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * <p>Run {@code task} on the scheduler in a read-only transaction of its own, on a replica when there are some.</p>
+     */
+    public <V> Mono<V> fromSupplier(Supplier<V> task) {
+        return Mono.fromSupplier(() -> readOnly.execute(status -> task.get())).subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ben.pagination.utils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Replace the datasource of {@code spring.datasource} by a {@link ReplicaRoutingDataSource} over it and the
+ * {@code pagination.replicas.datasources}, when {@code pagination.replicas.enabled}.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "pagination.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties, PaginationProperties properties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        PaginationProperties.Replicas config = properties.getReplicas();
+        List<HikariDataSource> replicas = config.getDatasources().stream().map(replica -> {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername())
+                    .password(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword())
+                    .build();
+            // Fail over quickly instead of waiting for the default 30s
+            dataSource.setConnectionTimeout(config.getConnectionTimeout().toMillis());
+            dataSource.setPoolName("replica-" + config.getDatasources().indexOf(replica));
+            return dataSource;
+        }).collect(Collectors.toList());
+
+        return new ReplicaRoutingDataSource(primary, List.copyOf(replicas), config.getSelection(), config.getFailoverCooldown());
+    }
+}
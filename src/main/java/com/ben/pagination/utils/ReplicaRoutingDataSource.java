@@ -0,0 +1,113 @@
+package com.ben.pagination.utils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Send the connections of read-only transactions to a replica, everything else to the primary.</p>
+ * <em>The connection is only fetched on the first statement, once the transaction is known to be read-only.
+ * A replica that can not give a connection is skipped for {@code pagination.replicas.failover-cooldown},
+ * the primary is used when no replica is left</em>.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReplicaSelection selection;
+    private final long cooldownNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<DataSource, Long> downUntil = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaSelection selection, Duration failoverCooldown) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.cooldownNanos = failoverCooldown.toNanos();
+        setTargetDataSource(new Router());
+    }
+
+    /**
+     * <p>The replicas still up, in the order they should be tried.</p>
+     */
+    protected List<DataSource> getCandidates() {
+        long now = System.nanoTime();
+        List<DataSource> candidates = new ArrayList<>(replicas.size());
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            DataSource replica = replicas.get((start + i) % replicas.size());
+            Long until = downUntil.get(replica);
+            if (until == null || until - now <= 0) {
+                candidates.add(replica);
+            }
+        }
+        if (selection == ReplicaSelection.LEAST_LOADED) {
+            candidates.sort(Comparator.comparingInt(ReplicaRoutingDataSource::getActiveConnections));
+        }
+        return candidates;
+    }
+
+    private static int getActiveConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            return pool != null ? pool.getActiveConnections() : 0;
+        }
+        return 0;
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            for (DataSource replica : getCandidates()) {
+                try {
+                    return source.getConnection(replica);
+                } catch (SQLException e) {
+                    log.warn("Replica unavailable, falling back for {} ms: {}", cooldownNanos / 1_000_000, e.getMessage());
+                    downUntil.put(replica, System.nanoTime() + cooldownNanos);
+                }
+            }
+        }
+        return source.getConnection(primary);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : replicas) {
+            if (dataSource instanceof Closeable) ((Closeable) dataSource).close();
+        }
+        if (primary instanceof Closeable) ((Closeable) primary).close();
+    }
+
+    private interface ConnectionSource {
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    private class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return route(DataSource::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return route(dataSource -> dataSource.getConnection(username, password));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.ben.pagination.utils;
+
+/**
+ * <p>How {@link ReplicaRoutingDataSource} picks the replica of a read-only transaction.</p>
+ */
+public enum ReplicaSelection {
+    /** Each replica in turn */
+    ROUND_ROBIN,
+    /** The replica with the fewest connections in use, only known for Hikari pools */
+    LEAST_LOADED
+}
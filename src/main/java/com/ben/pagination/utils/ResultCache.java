@@ -0,0 +1,107 @@
+package com.ben.pagination.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>Search pages and counts kept by entity, normalized criteria, page, size and sort, when {@code pagination.result-cache.enabled}.</p>
+ * <em>It is off by default: only the writes of this instance drop the results, a row changed behind its back or through
+ * another instance is served stale for up to {@code pagination.result-cache.ttl}. The cache is bounded by {@code pagination.result-cache.max-size} with W-TinyLFU eviction, so the few hot criteria stay
+ * while one-off searches are not admitted over them. Writing an entity moves it to a new generation, which drops all its results.
+ * A copy of the result is kept and every hit gets a copy of its own, see {@link EntitySnapshots}, the entities are detached
+ * and one caller changing them does not change what the others get. The hits and misses are published as the
+ * {@code cache.*} meters of the {@code pagination.results} cache, with the {@code pagination.result-cache.hit-ratio} gauge</em>.
+ */
+@Service
+public class ResultCache {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private PagingRepositoryHelper helper;
+
+    @Autowired
+    private EntitySnapshots snapshots;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Cache<CacheKey, Object> results;
+    // The generation is part of the key so a result computed before a write is stored where no one looks it up
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    protected void init() {
+        results = Caffeine.newBuilder()
+                .maximumSize(properties.getResultCache().getMaxSize())
+                .expireAfterWrite(properties.getResultCache().getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, results, "pagination.results");
+        Gauge.builder("pagination.result-cache.hit-ratio", this, cache -> cache.results.stats().hitRate())
+                .register(registry);
+    }
+
+    /**
+     * @param kind  what is cached, e.g. {@code "search"} or {@code "count"}
+     * @param extra everything besides the criteria the result depends on (page, size, sort, count mode)
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Class<?> entityClass, String kind, SearchCriteria crit, List<?> extra, Supplier<V> loader) {
+        if (!properties.getResultCache().isEnabled()) return loader.get();
+
+        CacheKey key = new CacheKey(entityClass, generation(entityClass).get(), kind, helper.criteriaKey(crit), extra);
+        V value = (V) results.getIfPresent(key);
+        if (value != null) return snapshots.copy(value);
+        value = loader.get();
+        if (value != null) results.put(key, snapshots.copy(value));
+        return value;
+    }
+
+    public void invalidate(Class<?> entityClass) {
+        generation(entityClass).incrementAndGet();
+        results.asMap().keySet().removeIf(key -> key.getEntityClass().equals(entityClass));
+    }
+
+    public Stats getStats() {
+        CacheStats stats = results.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(), results.estimatedSize());
+    }
+
+    private AtomicLong generation(Class<?> entityClass) {
+        return generations.computeIfAbsent(entityClass, c -> new AtomicLong());
+    }
+
+    @Value
+    private static class CacheKey {
+        Class<?> entityClass;
+        long generation;
+        String kind;
+        String criteria;
+        List<?> extra;
+    }
+
+    @Value
+    public static class Stats {
+        long hits;
+        long misses;
+        double hitRatio;
+        long evictions;
+        long size;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ben.pagination.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>One search of a batch, see {@link PagingRepositoryCustom#searchBatch}.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchRequest<U extends SearchCriteria> {
+    private U criteria;
+    private Integer currentPage = 0;
+    private Integer pageSize = 5;
+    private String sortDirection;
+    private String sortedField;
+    private CountMode countMode;
+}
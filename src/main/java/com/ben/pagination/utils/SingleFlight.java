@@ -0,0 +1,108 @@
+package com.ben.pagination.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>Coalesce the identical searches running at the same time: the first one queries the database, the others wait for
+ * its result instead of sending the same query.</p>
+ * <em>Only the searches in flight are shared, a search started after the first one completed queries again.
+ * The waiting callers each get a copy of the result, see {@link EntitySnapshots}. The searches executed and coalesced are
+ * counted by {@code pagination.single-flight}</em>.
+ */
+@Component
+public class SingleFlight {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private PagingRepositoryHelper helper;
+
+    @Autowired
+    private EntitySnapshots snapshots;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<FlightKey, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @PostConstruct
+    protected void init() {
+        FunctionCounter.builder("pagination.single-flight", executed, AtomicLong::get)
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("pagination.single-flight", coalesced, AtomicLong::get)
+                .tag("result", "coalesced")
+                .register(registry);
+    }
+
+    /**
+     * @param kind  what is searched, e.g. {@code "search"} or {@code "count"}
+     * @param extra everything besides the criteria the result depends on (page, size, sort, count mode)
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Class<?> entityClass, String kind, SearchCriteria crit, List<?> extra, Supplier<V> loader) {
+        if (!properties.getSingleFlight().isEnabled()) return loader.get();
+
+        FlightKey key = new FlightKey(entityClass, kind, helper.criteriaKey(crit), extra);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return (V) snapshots.copy(running.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        executed.incrementAndGet();
+        try {
+            V value = loader.get();
+            // The caller may change its result while the others copy theirs
+            flight.complete(snapshots.copy(value));
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(executed.get(), coalesced.get(), flights.size());
+    }
+
+    @Value
+    private static class FlightKey {
+        Class<?> entityClass;
+        String kind;
+        String criteria;
+        List<?> extra;
+    }
+
+    @Value
+    public static class Stats {
+        // The searches sent to the database
+        long executed;
+        // The searches served by one already in flight
+        long coalesced;
+        long inFlight;
+    }
+}
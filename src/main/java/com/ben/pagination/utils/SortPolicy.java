@@ -0,0 +1,13 @@
+package com.ben.pagination.utils;
+
+/**
+ * <p>What {@link SortRegistry} does with a sort on a column no index starts with.</p>
+ */
+public enum SortPolicy {
+    /** Sort anyway */
+    ALLOW,
+    /** Sort anyway, the unindexed sort fields are logged at startup */
+    WARN,
+    /** Reject the sort with an {@link InvalidSearchException} */
+    REJECT
+}
@@ -0,0 +1,220 @@
+package com.ben.pagination.utils;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * <p>The fields an entity can be sorted on, read from the metamodel: its basic attributes and the basic attributes of its
+ * single valued relations ({@code school.name}), joined with a left join.</p>
+ * <em>Each field knows if an index of the database starts with its column, a sort on an unindexed column is allowed,
+ * logged or rejected depending on {@code pagination.sort.unindexed}</em>.
+ */
+@Slf4j
+@Service
+public class SortRegistry {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaginationProperties properties;
+
+    private final Map<Class<?>, Map<String, SortField>> fieldsByEntity = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logUnindexedFields() {
+        if (properties.getSort().getUnindexed() != SortPolicy.WARN) {
+            return;
+        }
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            List<String> unindexed = getSortFields(entityType.getJavaType()).values().stream()
+                    .filter(field -> !field.isIndexed())
+                    .map(SortField::getKey)
+                    .collect(Collectors.toList());
+            if (!unindexed.isEmpty()) {
+                log.warn("Sorting {} on {} is not backed by an index", entityType.getName(), unindexed);
+            }
+        }
+    }
+
+    public Map<String, SortField> getSortFields(Class<?> entityClass) {
+        return fieldsByEntity.computeIfAbsent(entityClass, this::introspect);
+    }
+
+    /**
+     * <p>Parse a sort, a comma separated list of fields each optionally followed by {@code :asc} or {@code :desc}.</p>
+     * <em>{@code sortDirection} is the direction of the fields without one, the id is added last as a tiebreaker
+     * so the order is stable. An unsorted search gives an empty list</em>.
+     *
+     * @throws InvalidSearchException on an unknown field, or an unindexed one when they are rejected
+     */
+    public List<SortOrder> getSortOrders(Class<?> entityClass, String sortDirection, String sortedField) {
+        if (sortedField == null || sortedField.isBlank()) {
+            return List.of();
+        }
+        Map<String, SortField> fields = getSortFields(entityClass);
+        boolean defaultDesc = "desc".equalsIgnoreCase(sortDirection);
+        List<SortOrder> orders = new ArrayList<>();
+        for (String token : sortedField.split(",")) {
+            String[] parts = token.trim().split(":");
+            SortField field = fields.get(parts[0]);
+            if (field == null) {
+                throw new InvalidSearchException(InvalidSearchException.Reason.SORT, "Unable to sort on " + parts[0] + ", the sort fields are " + fields.keySet());
+            }
+            if (!field.isIndexed() && properties.getSort().getUnindexed() == SortPolicy.REJECT) {
+                throw new InvalidSearchException(InvalidSearchException.Reason.SORT, "Unable to sort on " + parts[0] + ", no index starts with its column");
+            }
+            boolean desc = parts.length > 1 ? "desc".equalsIgnoreCase(parts[1]) : defaultDesc;
+            orders.add(new SortOrder(field, desc));
+            if (field.isId()) {
+                // Nothing sorts after a unique key
+                return orders;
+            }
+        }
+        SortField id = fields.values().stream().filter(SortField::isId).findFirst().orElseThrow();
+        orders.add(new SortOrder(id, orders.get(orders.size() - 1).isDesc()));
+        return orders;
+    }
+
+    /**
+     * <p>The normalized key of a sort, {@code null} for an unsorted search.</p>
+     */
+    public static String toKey(List<SortOrder> orders) {
+        if (orders.isEmpty()) {
+            return null;
+        }
+        return orders.stream().map(order -> order.getField().getKey() + (order.isDesc() ? ":desc" : ":asc")).collect(Collectors.joining(","));
+    }
+
+    /**
+     * <p>The path of a sort field in a query, the left join of its relation is shared by the fields of the same relation.</p>
+     */
+    public Path<?> getPath(Root<?> root, SortField field) {
+        if (field.getJoin() == null) {
+            return root.get(field.getAttribute());
+        }
+        From<?, ?> join = null;
+        for (Join<?, ?> existing : root.getJoins()) {
+            if (existing.getAttribute().getName().equals(field.getJoin()) && existing.getJoinType() == JoinType.LEFT) {
+                join = existing;
+            }
+        }
+        if (join == null) {
+            join = root.join(field.getJoin(), JoinType.LEFT);
+        }
+        return join.get(field.getAttribute());
+    }
+
+    private Map<String, SortField> introspect(Class<?> entityClass) {
+        EntityType<?> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+        AbstractEntityPersister persister = getPersister(entityClass);
+        Set<String> indexedColumns = getIndexedColumns(entityClass, persister.getTableName());
+
+        Map<String, SortField> fields = new LinkedHashMap<>();
+        for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                String column = attribute.isId() ? persister.getIdentifierColumnNames()[0] : persister.getPropertyColumnNames(attribute.getName())[0];
+                fields.put(attribute.getName(), new SortField(attribute.getName(), null, attribute.getName(), attribute.isId(),
+                        attribute.isId() || indexedColumns.contains(column.toLowerCase())));
+            } else if (attribute.isAssociation()) {
+                EntityType<?> target = entityManagerFactory.getMetamodel().entity(attribute.getJavaType());
+                AbstractEntityPersister targetPersister = getPersister(target.getJavaType());
+                Set<String> targetIndexedColumns = getIndexedColumns(target.getJavaType(), targetPersister.getTableName());
+                for (SingularAttribute<?, ?> targetAttribute : target.getSingularAttributes()) {
+                    if (targetAttribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                        String column = targetAttribute.isId() ? targetPersister.getIdentifierColumnNames()[0]
+                                : targetPersister.getPropertyColumnNames(targetAttribute.getName())[0];
+                        String key = attribute.getName() + "." + targetAttribute.getName();
+                        fields.put(key, new SortField(key, attribute.getName(), targetAttribute.getName(), false,
+                                targetIndexedColumns.contains(column.toLowerCase())));
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    private AbstractEntityPersister getPersister(Class<?> entityClass) {
+        return (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getRuntimeMetamodels().getMappingMetamodel().getEntityDescriptor(entityClass);
+    }
+
+    /**
+     * <p>The columns, in lower case, an index of the table starts with. The {@link FullTextIndex} can not sort and are left out.</p>
+     */
+    private Set<String> getIndexedColumns(Class<?> entityClass, String tableName) {
+        Set<String> fullTextIndexes = Arrays.stream(entityClass.getAnnotationsByType(FullTextIndex.class))
+                .map(index -> index.name().toLowerCase())
+                .collect(Collectors.toSet());
+        try {
+            return JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), (DatabaseMetaData metaData) -> {
+                Set<String> columns = new HashSet<>();
+                try (ResultSet indexes = metaData.getIndexInfo(metaData.getConnection().getCatalog(), null, tableName, false, true)) {
+                    while (indexes.next()) {
+                        String indexName = indexes.getString("INDEX_NAME");
+                        String column = indexes.getString("COLUMN_NAME");
+                        if (indexes.getShort("ORDINAL_POSITION") == 1 && column != null
+                                && (indexName == null || !fullTextIndexes.contains(indexName.toLowerCase()))) {
+                            columns.add(column.toLowerCase());
+                        }
+                    }
+                }
+                return columns;
+            });
+        } catch (MetaDataAccessException e) {
+            log.warn("Unable to read the indexes of {}, its sort fields are considered unindexed", tableName, e);
+            return Set.of();
+        }
+    }
+
+    /**
+     * <p>A field an entity can be sorted on, {@code join} is the relation it is read through, if any.</p>
+     */
+    @Value
+    public static class SortField {
+        String key;
+        String join;
+        String attribute;
+        boolean id;
+        boolean indexed;
+    }
+
+    @Value
+    public static class SortOrder {
+        SortField field;
+        boolean desc;
+    }
+}
@@ -0,0 +1,48 @@
+package com.ben.pagination.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Warm the searches up before the instance takes traffic when {@code pagination.warm-up.enabled}, see
+ * {@link PagingRepositoryImpl#warmUp}: the connection pools are opened, the plans built and the Hibernate and Criteria
+ * classes loaded.</p>
+ * <em>Spring only turns the readiness state to {@code ACCEPTING_TRAFFIC} once the runners are done, so
+ * {@code /actuator/health/readiness} waits for it. A failure is logged, a cold instance is better than none.
+ * With {@code pagination.warm-up.exit} the application stops once warm, the training run of a CDS archive</em>.
+ */
+@Slf4j
+@Component
+public class WarmUp implements ApplicationRunner {
+
+    @Autowired
+    private PaginationProperties properties;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void run(ApplicationArguments args) {
+        PaginationProperties.WarmUp config = properties.getWarmUp();
+        if (config.isEnabled()) {
+            long start = System.nanoTime();
+            context.getBeansOfType(PagingRepositoryImpl.class).forEach((name, repository) -> {
+                try {
+                    repository.warmUp(config.getIterations());
+                } catch (RuntimeException e) {
+                    log.warn("Unable to warm {} up", name, e);
+                }
+            });
+            log.info("Warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
+        }
+        if (config.isExit()) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+}
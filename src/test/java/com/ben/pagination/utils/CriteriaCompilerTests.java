@@ -0,0 +1,245 @@
+package com.ben.pagination.utils;
+
+import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.entity.Student;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.Data;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CriteriaCompilerTests {
+
+	private static final List<Student> STUDENTS = List.of(
+			new Student(1L, "Ben Ali", "ben@x.io", null),
+			new Student(2L, "Anna Bell", "anna@x.io", null),
+			new Student(3L, "Benoit Roy", null, null),
+			new Student(4L, "Carl Benson", "carl@y.io", null),
+			new Student(5L, "Dora Kim", "dora@y.io", null));
+
+	private PagingRepositoryHelper helper;
+	private FilterCompiler filterCompiler;
+	private CriteriaCompiler compiler;
+
+	@BeforeEach
+	void createCompiler() {
+		helper = new PagingRepositoryHelper();
+		ReflectionTestUtils.setField(helper, "objectMapper", new ObjectMapper());
+		filterCompiler = mock(FilterCompiler.class);
+		compiler = new CriteriaCompiler();
+		ReflectionTestUtils.setField(compiler, "helper", helper);
+		ReflectionTestUtils.setField(compiler, "filterCompiler", filterCompiler);
+	}
+
+	@Test
+	void criteriaClassIsCompiledOnce() {
+		assertSame(compiler.compile(StudentCriteria.class), compiler.compile(StudentCriteria.class));
+	}
+
+	@Test
+	void likeAttributesAreTheAttributesOfTheLikeFields() {
+		assertEquals(Set.of("fullName", "email"), compiler.compile(StudentCriteria.class).getLikeAttributes());
+		assertEquals(Set.of("fullName"), compiler.compile(RangeCriteria.class).getLikeAttributes());
+	}
+
+	@Test
+	void fieldWithoutAGetterIsRejected() {
+		assertThrows(IllegalStateException.class, () -> compiler.compile(NoGetterCriteria.class));
+	}
+
+	@Test
+	void filterShapeIsTheShapeOfEachFilterTree() {
+		Filter filter = new Filter();
+		when(filterCompiler.shape(Student.class, filter)).thenReturn("email in");
+		StudentCriteria criteria = new StudentCriteria();
+		CriteriaCompiler.CompiledCriteria<StudentCriteria> compiled = compiler.compile(StudentCriteria.class);
+
+		assertEquals("", compiled.getFilterShape(Student.class, null));
+		assertEquals("", compiled.getFilterShape(Student.class, criteria));
+		criteria.setFilter(filter);
+		assertEquals("filter=email in", compiled.getFilterShape(Student.class, criteria));
+		assertEquals("", compiler.compile(RangeCriteria.class).getFilterShape(Student.class, new RangeCriteria()));
+	}
+
+	@Test
+	void nullFieldsAreNotFiltered() {
+		CriteriaCompiler.CompiledCriteria<RangeCriteria> compiled = compiler.compile(RangeCriteria.class);
+
+		assertEquals(studentTable().all(), compiled.filter(null, studentTable()));
+		assertEquals(studentTable().all(), compiled.filter(new RangeCriteria(), studentTable()));
+	}
+
+	@Test
+	void fieldsAreFilteredInMemory() {
+		RangeCriteria criteria = new RangeCriteria();
+		criteria.setFullName("BEN");
+		criteria.setMinId(2L);
+
+		assertEquals(rows(2, 3), compiler.compile(RangeCriteria.class).filter(criteria, studentTable()));
+
+		criteria.setFullName(null);
+		criteria.setMaxId(4L);
+		criteria.setEmails(List.of("anna@x.io", "dora@y.io"));
+		assertEquals(rows(1), compiler.compile(RangeCriteria.class).filter(criteria, studentTable()));
+
+		criteria = new RangeCriteria();
+		criteria.setId(5L);
+		assertEquals(rows(4), compiler.compile(RangeCriteria.class).filter(criteria, studentTable()));
+	}
+
+	@Test
+	void matchModeOfALikeIsFollowedInMemory() {
+		CriteriaCompiler.CompiledCriteria<StudentCriteria> compiled = compiler.compile(StudentCriteria.class);
+		StudentCriteria criteria = new StudentCriteria();
+		criteria.setFullName("ben");
+
+		assertEquals(rows(0, 2, 3), compiled.filter(criteria, studentTable()));
+		criteria.setFullNameMatch(MatchMode.PREFIX);
+		assertEquals(rows(0, 2), compiled.filter(criteria, studentTable()));
+		criteria.setFullName("ben ali");
+		criteria.setFullNameMatch(MatchMode.EXACT);
+		assertEquals(rows(0), compiled.filter(criteria, studentTable()));
+	}
+
+	@Test
+	void fullTextIsLeftToTheDatabase() {
+		StudentCriteria criteria = new StudentCriteria();
+		criteria.setFullName("ben");
+		criteria.setFullNameMatch(MatchMode.FULL_TEXT);
+
+		assertNull(compiler.compile(StudentCriteria.class).filter(criteria, studentTable()));
+	}
+
+	@Test
+	void filterFieldIsFilteredByTheFilterCompiler() {
+		InMemoryTable<Student> table = studentTable();
+		Filter filter = new Filter();
+		StudentCriteria criteria = new StudentCriteria();
+		criteria.setFilter(filter);
+
+		when(filterCompiler.filter(eq(table), any(), eq(Student.class), eq(filter))).thenReturn(true);
+		assertEquals(table.all(), compiler.compile(StudentCriteria.class).filter(criteria, table));
+
+		when(filterCompiler.filter(eq(table), any(), eq(Student.class), eq(filter))).thenReturn(false);
+		assertNull(compiler.compile(StudentCriteria.class).filter(criteria, table));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void nullCriteriaIsTheConjunction() {
+		CriteriaBuilder cb = mock(CriteriaBuilder.class, RETURNS_MOCKS);
+		Predicate conjunction = mock(Predicate.class);
+		when(cb.conjunction()).thenReturn(conjunction);
+
+		assertSame(conjunction, compiler.compile(RangeCriteria.class).toPredicate(null, cb, mock(Root.class, RETURNS_MOCKS)));
+		assertSame(conjunction, compiler.compile(RangeCriteria.class).toPredicate(new RangeCriteria(), cb, mock(Root.class, RETURNS_MOCKS)));
+		verify(cb, never()).and(any(Predicate.class), any(Predicate.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void planBuiltForACriteriaBindsTheFieldsOfAnotherOfTheSameShape() {
+		RangeCriteria built = new RangeCriteria();
+		built.setId(3L);
+		built.setMinId(1L);
+		RangeCriteria reused = new RangeCriteria();
+		reused.setId(7L);
+		reused.setMinId(5L);
+
+		QueryBindings<RangeCriteria> bindings = new QueryBindings<>();
+		helper.withBindings(bindings, () -> compiler.compile(RangeCriteria.class)
+				.toPredicate(built, mock(CriteriaBuilder.class, RETURNS_MOCKS), mock(Root.class, RETURNS_MOCKS)));
+		Query query = mock(Query.class);
+		bindings.applyTo(query, reused);
+
+		verify(query).setParameter("p0", 7L);
+		verify(query).setParameter("p1", 5L);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void likePatternsAreBoundFromTheMatchMode() {
+		StudentCriteria built = new StudentCriteria();
+		built.setFullName("ben");
+		built.setEmail("ben@x.io");
+		built.setEmailMatch(MatchMode.PREFIX);
+		StudentCriteria reused = new StudentCriteria();
+		reused.setFullName("ANNA");
+		reused.setEmail("anna_b");
+		reused.setEmailMatch(MatchMode.PREFIX);
+
+		QueryBindings<StudentCriteria> bindings = new QueryBindings<>();
+		helper.withBindings(bindings, () -> compiler.compile(StudentCriteria.class)
+				.toPredicate(built, mock(CriteriaBuilder.class, RETURNS_MOCKS), mock(Root.class, RETURNS_MOCKS)));
+		Query query = mock(Query.class);
+		bindings.applyTo(query, reused);
+
+		verify(query).setParameter("p0", "%anna%");
+		verify(query).setParameter("p1", "anna\\_b%");
+		reused.setEmailMatch(MatchMode.EXACT);
+		assertFalse(bindings.matches(reused));
+	}
+
+	private static BitSet rows(int... rows) {
+		BitSet set = new BitSet();
+		for (int row : rows) set.set(row);
+		return set;
+	}
+
+	private static InMemoryTable<Student> studentTable() {
+		Map<String, Function<Student, Object>> readers = Map.of("id", Student::getId, "fullName", Student::getFullName, "email", Student::getEmail);
+		return new InMemoryTable<>(Student.class, STUDENTS, Student::getId, readers, Set.of("fullName"));
+	}
+
+	@Data
+	public static class RangeCriteria implements SearchCriteria {
+		@Equal("id")
+		private Long id;
+		@Between(value = "id", bound = Between.Bound.LOWER)
+		private Long minId;
+		@Between(value = "id", bound = Between.Bound.UPPER)
+		private Long maxId;
+		@Like("fullName")
+		private String fullName;
+		@In("email")
+		private List<String> emails;
+
+		@Override
+		public boolean isEmpty() {
+			return id == null && minId == null && maxId == null && fullName == null && emails == null;
+		}
+	}
+
+	public static class NoGetterCriteria implements SearchCriteria {
+		@Equal("id")
+		private Long id;
+
+		@Override
+		public boolean isEmpty() {
+			return id == null;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.ben.pagination.utils;
+
+import com.ben.pagination.repository.StudentRepositoryImpl;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class CursorCodecTests {
+
+	private CursorCodec codec;
+
+	@BeforeEach
+	void createCodec() {
+		codec = new CursorCodec();
+		ReflectionTestUtils.setField(codec, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+	}
+
+	@Test
+	void tokenKeepsTheSortValueAndTheId() {
+		CursorCodec.Cursor cursor = codec.decode(codec.encode("Ben Ali", 42L));
+
+		assertEquals("Ben Ali", codec.convert(cursor.getSortValue(), String.class));
+		assertEquals(42L, codec.convert(cursor.getId(), Long.class));
+	}
+
+	@Test
+	void instantIsKeptToTheMicrosecond() {
+		Instant changed = Instant.parse("2023-12-05T15:30:10.123456Z");
+
+		CursorCodec.Cursor cursor = codec.decode(codec.encode(changed, 0L));
+
+		assertEquals(changed, codec.convert(cursor.getSortValue(), Instant.class));
+	}
+
+	@Test
+	void nullSortValueIsKept() {
+		CursorCodec.Cursor cursor = codec.decode(codec.encode(null, 7L));
+
+		assertTrue(cursor.isSortValueNull());
+		assertNull(codec.convert(cursor.getSortValue(), String.class));
+	}
+
+	@Test
+	void tokenIsUrlSafe() {
+		String token = codec.encode("?&/+= é", Long.MAX_VALUE);
+
+		assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+	}
+
+	@Test
+	void invalidTokensAreRejected() {
+		assertThrows(InvalidSearchException.class, () -> codec.decode("not a token"));
+		assertThrows(InvalidSearchException.class, () -> codec.decode(codec.encode("Ben Ali", null)));
+		CursorCodec.Cursor cursor = codec.decode(codec.encode("Ben Ali", 42L));
+		assertThrows(InvalidSearchException.class, () -> codec.convert(cursor.getSortValue(), Long.class));
+	}
+
+	@Test
+	void garbageTokenIsABadRequest() {
+		InvalidSearchException rejected = assertThrows(InvalidSearchException.class, () -> codec.decode("e30"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		new ResponseStatusExceptionResolver().resolveException(new MockHttpServletRequest(), response, null, rejected);
+
+		assertEquals(InvalidSearchException.Reason.CURSOR, rejected.getReason());
+		assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+	}
+
+	@Test
+	void seekFromEachRowReturnsTheRowsAfterIt() {
+		List<Row> rows = List.of(new Row(null, 2), new Row(null, 5), new Row(3L, 1), new Row(3L, 4), new Row(3L, 6),
+				new Row(7L, 3), new Row(9L, 7), new Row(null, 8));
+		for (boolean desc : new boolean[]{false, true}) {
+			// MySQL sorts the nulls first ascending and last descending
+			Comparator<Row> order = Comparator.comparing((Row row) -> row.value, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+					.thenComparingLong(row -> row.id);
+			List<Row> sorted = rows.stream().sorted(desc ? order.reversed() : order).collect(Collectors.toList());
+
+			for (int i = 0; i < sorted.size(); i++) {
+				Row last = sorted.get(i);
+				List<Row> after = sorted.stream().filter(row -> seek(last, desc).test(row)).collect(Collectors.toList());
+				assertEquals(sorted.subList(i + 1, sorted.size()), after, (desc ? "desc" : "asc") + " after " + last);
+			}
+		}
+	}
+
+	@Test
+	void seekOnTheIdAloneComparesTheId() {
+		Predicates predicates = new Predicates();
+		Predicate seek = new StudentRepositoryImpl().getSeekPredicate(predicates.cb, null, predicates.id, null, predicates.constant(4L), false);
+
+		assertTrue(predicates.test(seek, new Row(null, 5)));
+		assertFalse(predicates.test(seek, new Row(9L, 4)));
+	}
+
+	private static java.util.function.Predicate<Row> seek(Row last, boolean desc) {
+		Predicates predicates = new Predicates();
+		Expression<?> lastValue = last.value != null ? predicates.constant(last.value) : null;
+		Predicate seek = new StudentRepositoryImpl().getSeekPredicate(predicates.cb, predicates.value, predicates.id, lastValue, predicates.constant(last.id), desc);
+		return row -> predicates.test(seek, row);
+	}
+
+	private static class Row {
+		final Long value;
+		final long id;
+
+		Row(Long value, long id) {
+			this.value = value;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Row && Objects.equals(value, ((Row) other).value) && id == ((Row) other).id;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(value, id);
+		}
+
+		@Override
+		public String toString() {
+			return "(" + value + ", " + id + ")";
+		}
+	}
+
+	/**
+	 * <p>A criteria builder evaluating the predicates it builds on a row, with the three-valued logic of SQL.</p>
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static class Predicates {
+		private final Map<Object, Function<Row, Object>> expressions = new IdentityHashMap<>();
+		final Path value = expression(Path.class, row -> row.value);
+		final Path id = expression(Path.class, row -> row.id);
+		final CriteriaBuilder cb = mock(CriteriaBuilder.class, invocation -> {
+			List<Function<Row, Object>> arguments = new ArrayList<>();
+			for (Object argument : invocation.getArguments()) arguments.add(expressions.get(argument));
+			switch (invocation.getMethod().getName()) {
+				case "lessThan":
+					return compare(arguments, compared -> compared < 0);
+				case "greaterThan":
+					return compare(arguments, compared -> compared > 0);
+				case "equal":
+					return compare(arguments, compared -> compared == 0);
+				case "isNull":
+					return expression(Predicate.class, row -> arguments.get(0).apply(row) == null);
+				case "isNotNull":
+					return expression(Predicate.class, row -> arguments.get(0).apply(row) != null);
+				case "and":
+					return expression(Predicate.class, row -> and(arguments.get(0).apply(row), arguments.get(1).apply(row)));
+				case "or":
+					return expression(Predicate.class, row -> or(arguments.get(0).apply(row), arguments.get(1).apply(row)));
+				default:
+					throw new UnsupportedOperationException(invocation.getMethod().getName() + Arrays.toString(invocation.getArguments()));
+			}
+		});
+
+		Expression<?> constant(Object constant) {
+			return expression(Expression.class, row -> constant);
+		}
+
+		boolean test(Predicate predicate, Row row) {
+			return Boolean.TRUE.equals(expressions.get(predicate).apply(row));
+		}
+
+		private <E> E expression(Class<E> type, Function<Row, Object> evaluate) {
+			E expression = mock(type);
+			expressions.put(expression, evaluate);
+			return expression;
+		}
+
+		private Predicate compare(List<Function<Row, Object>> arguments, java.util.function.Predicate<Integer> test) {
+			return expression(Predicate.class, row -> {
+				Comparable left = (Comparable) arguments.get(0).apply(row);
+				Object right = arguments.get(1).apply(row);
+				return left == null || right == null ? null : test.test(left.compareTo(right));
+			});
+		}
+
+		private static Object and(Object left, Object right) {
+			if (Boolean.FALSE.equals(left) || Boolean.FALSE.equals(right)) return false;
+			return left == null || right == null ? null : true;
+		}
+
+		private static Object or(Object left, Object right) {
+			if (Boolean.TRUE.equals(left) || Boolean.TRUE.equals(right)) return true;
+			return left == null || right == null ? null : false;
+		}
+	}
+}
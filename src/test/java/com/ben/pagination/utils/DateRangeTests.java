@@ -0,0 +1,91 @@
+package com.ben.pagination.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DateRangeTests {
+
+	@Test
+	void yearIsTheWholeYear() {
+		assertRange("2023", false, LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 0, 0));
+	}
+
+	@Test
+	void monthIsTheWholeMonth() {
+		assertRange("12/2023", false, LocalDateTime.of(2023, 12, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 0, 0));
+	}
+
+	@Test
+	void dayIsTheWholeDay() {
+		assertRange("05/12/2023", false, LocalDateTime.of(2023, 12, 5, 0, 0), LocalDateTime.of(2023, 12, 6, 0, 0));
+	}
+
+	@Test
+	void timeIsTheSecond() {
+		assertRange("05/12/2023 03:30:10 PM", true, LocalDateTime.of(2023, 12, 5, 15, 30, 10), LocalDateTime.of(2023, 12, 5, 15, 30, 11));
+	}
+
+	@Test
+	void twelveAmIsMidnight() {
+		assertRange("05/12/2023 12:00:00 am", true, LocalDateTime.of(2023, 12, 5, 0, 0), LocalDateTime.of(2023, 12, 5, 0, 0, 1));
+	}
+
+	@Test
+	void timeToTheHourIsNotParsed() {
+		// The formatted column always has its seconds, the LIKE matched nothing
+		assertNull(DateRange.parse("05/12/2023 03 PM", true));
+	}
+
+	@Test
+	void timeToTheMinuteIsNotParsed() {
+		assertNull(DateRange.parse("05/12/2023 03:30 PM", true));
+	}
+
+	@Test
+	void inputsTheLikeMatchesDifferentlyAreNotParsed() {
+		// The 5th, 15th and 25th
+		assertNull(DateRange.parse("5/12/2023", false));
+		// February and December
+		assertNull(DateRange.parse("2/2023", false));
+		// Morning and afternoon
+		assertNull(DateRange.parse("05/12/2023 03:30", true));
+		assertNull(DateRange.parse("05/12/2023 15:30", true));
+		// Any day of the month at ten
+		assertNull(DateRange.parse("12/2023 10:00 AM", true));
+	}
+
+	@Test
+	void timeOfADateColumnIsNotParsed() {
+		assertNull(DateRange.parse("05/12/2023 03:30:10 PM", false));
+	}
+
+	@Test
+	void invalidInputsAreNotParsed() {
+		assertNull(DateRange.parse(null, false));
+		assertNull(DateRange.parse("05/12", false));
+		assertNull(DateRange.parse("31/02/2023", false));
+		assertNull(DateRange.parse("05/12/2023 13:00:00 PM", true));
+	}
+
+	@Test
+	void rangeEndOfADateColumnIsRoundedUp() {
+		DateRange range = DateRange.parse("05/12/2023 03:30:10 PM", true);
+
+		assertEquals(LocalDate.of(2023, 12, 5), range.getStartAs(LocalDate.class));
+		assertEquals(LocalDate.of(2023, 12, 6), range.getEndAs(LocalDate.class));
+		assertEquals(Timestamp.valueOf(LocalDateTime.of(2023, 12, 5, 15, 30, 11)), range.getEndAs(java.util.Date.class));
+	}
+
+	private static void assertRange(String input, boolean withTime, LocalDateTime start, LocalDateTime end) {
+		DateRange range = DateRange.parse(input, withTime);
+
+		assertEquals(start, range.getStart());
+		assertEquals(end, range.getEnd());
+	}
+}
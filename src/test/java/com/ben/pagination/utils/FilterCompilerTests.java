@@ -0,0 +1,273 @@
+package com.ben.pagination.utils;
+
+import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.entity.Student;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FilterCompilerTests {
+
+	private static final SortRegistry.SortField ID = new SortRegistry.SortField("id", null, "id", true, true);
+	private static final SortRegistry.SortField FULL_NAME = new SortRegistry.SortField("fullName", null, "fullName", false, true);
+	private static final SortRegistry.SortField EMAIL = new SortRegistry.SortField("email", null, "email", false, false);
+
+	private static final List<Student> STUDENTS = List.of(
+			new Student(1L, "Ben Ali", "ben@x.io", null),
+			new Student(2L, "Anna Bell", "anna@x.io", null),
+			new Student(3L, "Benoit Roy", null, null),
+			new Student(4L, "Carl Benson", "carl@y.io", null),
+			new Student(5L, "Dora Kim", "dora@y.io", null));
+
+	private PagingRepositoryHelper helper;
+	private FilterCompiler compiler;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void createCompiler() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		helper = new PagingRepositoryHelper();
+		ReflectionTestUtils.setField(helper, "objectMapper", objectMapper);
+
+		SortRegistry sortRegistry = mock(SortRegistry.class);
+		when(sortRegistry.getSortFields(Student.class)).thenReturn(Map.of("id", ID, "fullName", FULL_NAME, "email", EMAIL));
+		when(sortRegistry.getPath(any(), any())).thenAnswer(invocation -> mock(Path.class, RETURNS_MOCKS));
+
+		EntityType<Student> entityType = mock(EntityType.class);
+		doReturn(attribute(Long.class, false)).when(entityType).getSingularAttribute("id");
+		doReturn(attribute(String.class, false)).when(entityType).getSingularAttribute("fullName");
+		doReturn(attribute(String.class, true)).when(entityType).getSingularAttribute("email");
+		Metamodel metamodel = mock(Metamodel.class);
+		when(metamodel.entity(Student.class)).thenReturn(entityType);
+		EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+		when(entityManagerFactory.getMetamodel()).thenReturn(metamodel);
+
+		compiler = new FilterCompiler();
+		ReflectionTestUtils.setField(compiler, "helper", helper);
+		ReflectionTestUtils.setField(compiler, "sortRegistry", sortRegistry);
+		ReflectionTestUtils.setField(compiler, "entityManagerFactory", entityManagerFactory);
+		ReflectionTestUtils.setField(compiler, "objectMapper", objectMapper);
+	}
+
+	@Test
+	void equalitiesOnAFieldAreMergedIntoAnIn() {
+		FilterCompiler.Optimized tree = compiler.optimize(Student.class,
+				or(condition("email", Filter.Operator.EQUAL, "a@x.io"), condition("email", Filter.Operator.EQUAL, "b@x.io"),
+						in("email", "c@x.io", "a@x.io")));
+
+		assertEquals("email in", tree.getShape());
+		assertEquals(List.of("a@x.io", "b@x.io", "c@x.io"), tree.getLeaves().get(0).getValues());
+	}
+
+	@Test
+	void inListsOfAnAndAreIntersected() {
+		assertEquals("email equal", compiler.shape(Student.class, and(in("email", "a@x.io", "b@x.io"), in("email", "b@x.io", "c@x.io"))));
+		assertEquals("false", compiler.shape(Student.class, and(in("email", "a@x.io"), in("email", "c@x.io"))));
+	}
+
+	@Test
+	void crossedBoundsAreFalse() {
+		assertEquals("false", compiler.shape(Student.class, and(between("id", 10, null), between("id", null, 5))));
+		assertEquals("id equal", compiler.shape(Student.class, and(between("id", 5, null), between("id", null, 5))));
+		assertEquals("id[?,?]", compiler.shape(Student.class, and(between("id", 2, null), between("id", null, 5))));
+	}
+
+	@Test
+	void notNullIsKeptOnAnOptionalField() {
+		assertEquals("not(email null)", compiler.shape(Student.class, not(condition("email", Filter.Operator.NULL, null))));
+		// An equality to null is a NULL
+		assertEquals("email null", compiler.shape(Student.class, condition("email", Filter.Operator.EQUAL, null)));
+		assertEquals("email null", compiler.shape(Student.class, not(not(condition("email", Filter.Operator.NULL, null)))));
+	}
+
+	@Test
+	void nullOnAMandatoryFieldIsFolded() {
+		assertEquals("false", compiler.shape(Student.class, condition("fullName", Filter.Operator.NULL, null)));
+		assertEquals("true", compiler.shape(Student.class, not(condition("fullName", Filter.Operator.NULL, null))));
+		assertEquals("email like", compiler.shape(Student.class,
+				and(not(condition("fullName", Filter.Operator.NULL, null)), condition("email", Filter.Operator.LIKE, "x.io"))));
+	}
+
+	@Test
+	void indexedConditionsComeFirst() {
+		assertEquals("and(id equal,fullName in,email like)", compiler.shape(Student.class,
+				and(condition("email", Filter.Operator.LIKE, "x.io"), in("fullName", "Ben Ali", "Anna Bell"), condition("id", Filter.Operator.EQUAL, 1))));
+	}
+
+	@Test
+	void malformedFiltersAreRejected() {
+		assertFilterRejected(() -> compiler.optimize(Student.class, condition("age", Filter.Operator.EQUAL, 1)));
+		assertFilterRejected(() -> compiler.optimize(Student.class, condition("fullName", null, "ben")));
+		assertFilterRejected(() -> compiler.optimize(Student.class, condition("id", Filter.Operator.LIKE, "1")));
+		assertFilterRejected(() -> compiler.optimize(Student.class, condition("id", Filter.Operator.EQUAL, "one")));
+	}
+
+	@Test
+	void planBuiltForAFilterBindsTheLeavesOfAnotherOfTheSameShape() {
+		StudentCriteria built = criteria(and(condition("fullName", Filter.Operator.LIKE, "ben"), condition("id", Filter.Operator.EQUAL, 3)));
+		// The same conditions listed the other way round, the optimized trees have the same shape
+		StudentCriteria reused = criteria(and(condition("id", Filter.Operator.EQUAL, 7), condition("fullName", Filter.Operator.LIKE, "50%")));
+		assertEquals(compiler.shape(Student.class, built.getFilter()), compiler.shape(Student.class, reused.getFilter()));
+
+		QueryBindings<StudentCriteria> bindings = new QueryBindings<>();
+		helper.withBindings(bindings, () -> compiler.toPredicate(mock(CriteriaBuilder.class, RETURNS_MOCKS), studentRoot(), built, StudentCriteria::getFilter));
+		Query query = mock(Query.class);
+		bindings.applyTo(query, reused);
+
+		verify(query).setParameter("p0", 7L);
+		verify(query).setParameter("p1", "%50\\%%");
+	}
+
+	@Test
+	void inMemoryMatchesTheUnoptimizedFilter() {
+		InMemoryTable<Student> table = studentTable();
+		List<Filter> filters = List.of(
+				condition("fullName", Filter.Operator.LIKE, "ben"),
+				or(condition("email", Filter.Operator.EQUAL, "ben@x.io"), condition("email", Filter.Operator.EQUAL, "dora@y.io")),
+				and(condition("fullName", Filter.Operator.LIKE, "ben"), between("id", 2, null)),
+				and(between("id", 2, null), between("id", null, 4), in("email", "anna@x.io", "carl@y.io", "zed@x.io")),
+				or(between("id", 5, null), and(in("email", "ben@x.io", "anna@x.io"), in("email", "anna@x.io"))),
+				and(between("id", 4, null), between("id", null, 2)),
+				in("email"));
+
+		for (Filter filter : filters) {
+			BitSet rows = table.all();
+			assertTrue(compiler.filter(table, rows, Student.class, filter));
+			BitSet expected = new BitSet();
+			for (int row = 0; row < STUDENTS.size(); row++) {
+				if (matches(filter, STUDENTS.get(row))) expected.set(row);
+			}
+			assertEquals(expected, rows, filter.toString());
+		}
+	}
+
+	@Test
+	void threeValuedLogicIsLeftToTheDatabase() {
+		assertFalse(compiler.filter(studentTable(), studentTable().all(), Student.class, not(condition("fullName", Filter.Operator.LIKE, "ben"))));
+		assertFalse(compiler.filter(studentTable(), studentTable().all(), Student.class, condition("email", Filter.Operator.NULL, null)));
+	}
+
+	private static void assertFilterRejected(Executable optimize) {
+		assertEquals(InvalidSearchException.Reason.FILTER, assertThrows(InvalidSearchException.class, optimize).getReason());
+	}
+
+	/**
+	 * <p>Evaluate a filter as written, the way the database does: a null matches no condition but NULL.</p>
+	 */
+	private static boolean matches(Filter filter, Student student) {
+		if (filter.getAnd() != null) return filter.getAnd().stream().allMatch(child -> matches(child, student));
+		if (filter.getOr() != null) return filter.getOr().stream().anyMatch(child -> matches(child, student));
+		Function<Student, Object> reader = Map.<String, Function<Student, Object>>of(
+				"id", Student::getId, "fullName", Student::getFullName, "email", Student::getEmail).get(filter.getField());
+		Object value = reader.apply(student);
+		if (value == null) return false;
+		Predicate<Object> equal = other -> other instanceof Number ? ((Number) other).longValue() == (Long) value : value.equals(other);
+		switch (filter.getOp()) {
+			case LIKE:
+				return ((String) value).toLowerCase().contains(((String) filter.getValue()).toLowerCase());
+			case EQUAL:
+				return equal.test(filter.getValue());
+			case IN:
+				return filter.getValues().stream().anyMatch(equal);
+			case BETWEEN:
+				Object lower = filter.getValues().get(0);
+				Object upper = filter.getValues().get(1);
+				return (lower == null || (Long) value >= ((Number) lower).longValue()) && (upper == null || (Long) value <= ((Number) upper).longValue());
+			default:
+				return false;
+		}
+	}
+
+	private static InMemoryTable<Student> studentTable() {
+		Map<String, Function<Student, Object>> readers = Map.of("id", Student::getId, "fullName", Student::getFullName, "email", Student::getEmail);
+		return new InMemoryTable<>(Student.class, STUDENTS, Student::getId, readers, Set.of("fullName"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Root<Student> studentRoot() {
+		Root<Student> root = mock(Root.class);
+		doReturn(Student.class).when(root).getJavaType();
+		return root;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static SingularAttribute<Student, Object> attribute(Class<?> type, boolean optional) {
+		SingularAttribute<Student, Object> attribute = mock(SingularAttribute.class);
+		doReturn(type).when(attribute).getJavaType();
+		when(attribute.isOptional()).thenReturn(optional);
+		return attribute;
+	}
+
+	private static StudentCriteria criteria(Filter filter) {
+		StudentCriteria criteria = new StudentCriteria();
+		criteria.setFilter(filter);
+		return criteria;
+	}
+
+	private static Filter condition(String field, Filter.Operator op, Object value) {
+		Filter filter = new Filter();
+		filter.setField(field);
+		filter.setOp(op);
+		filter.setValue(value);
+		return filter;
+	}
+
+	private static Filter in(String field, Object... values) {
+		Filter filter = condition(field, Filter.Operator.IN, null);
+		filter.setValues(Arrays.asList(values));
+		return filter;
+	}
+
+	private static Filter between(String field, Object lower, Object upper) {
+		Filter filter = condition(field, Filter.Operator.BETWEEN, null);
+		filter.setValues(Arrays.asList(lower, upper));
+		return filter;
+	}
+
+	private static Filter and(Filter... children) {
+		Filter filter = new Filter();
+		filter.setAnd(Arrays.asList(children));
+		return filter;
+	}
+
+	private static Filter or(Filter... children) {
+		Filter filter = new Filter();
+		filter.setOr(Arrays.asList(children));
+		return filter;
+	}
+
+	private static Filter not(Filter child) {
+		Filter filter = new Filter();
+		filter.setNot(child);
+		return filter;
+	}
+}
@@ -0,0 +1,56 @@
+package com.ben.pagination.utils;
+
+import com.ben.pagination.entity.Student;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemorySearchEngineTests {
+
+	private InMemorySearchEngine engine;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void createEngine() {
+		PaginationProperties properties = new PaginationProperties();
+		properties.getInMemory().setEntities(List.of(Student.class));
+		engine = new InMemorySearchEngine();
+		ReflectionTestUtils.setField(engine, "properties", properties);
+		ReflectionTestUtils.setField(engine, "snapshots", new EntitySnapshots());
+		engine.register(Student.class, Set.of("fullName"));
+
+		Map<String, Function<Student, Object>> readers = Map.of("id", Student::getId, "fullName", Student::getFullName, "email", Student::getEmail);
+		InMemoryTable<Student> table = new InMemoryTable<>(Student.class, List.of(new Student(1L, "Ben Ali", "ben@x.io", null)),
+				Student::getId, readers, Set.of("fullName"));
+		((Map<Class<?>, InMemoryTable<?>>) ReflectionTestUtils.getField(engine, "tables")).put(Student.class, table);
+	}
+
+	@Test
+	void writtenEntitiesAreCopied() {
+		Student saved = new Student(2L, "Anna Bell", "anna@x.io", null);
+		engine.write(Student.class, List.of(saved));
+		saved.setEmail("anna@z.io");
+
+		List<Student> page = engine.getTable(Student.class).page(engine.getTable(Student.class).all(), List.of(), 0, 10);
+		assertEquals(2, page.size());
+		assertNotSame(saved, page.get(1));
+		assertEquals("anna@x.io", page.get(1).getEmail());
+	}
+
+	@Test
+	void entityNotKeptInMemoryIsNotWritten() {
+		engine.write(Object.class, List.of(new Object()));
+
+		assertNull(engine.getTable(Object.class));
+		assertEquals(1, engine.getTable(Student.class).size());
+	}
+}
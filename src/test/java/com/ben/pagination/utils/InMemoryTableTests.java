@@ -0,0 +1,161 @@
+package com.ben.pagination.utils;
+
+import com.ben.pagination.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTableTests {
+
+	private static final SortRegistry.SortField ID = new SortRegistry.SortField("id", null, "id", true, true);
+	private static final SortRegistry.SortField EMAIL = new SortRegistry.SortField("email", null, "email", false, false);
+
+	// Loaded out of id order, the rows are numbered in id order
+	private static final List<Student> STUDENTS = List.of(
+			new Student(4L, "Carl Benson", "carl@y.io", null),
+			new Student(1L, "Ben Ali", "ben@x.io", null),
+			new Student(2L, "Anna Bell", "anna@x.io", null),
+			new Student(6L, "Ben Ali", "BEN@x.io", null),
+			new Student(3L, "Benoit Roy", null, null),
+			new Student(5L, "Dora Kim", "dora@y.io", null));
+
+	private final InMemoryTable<Student> table = studentTable();
+
+	@Test
+	void equalIsCaseInsensitiveOnStrings() {
+		assertEquals(ids(1, 6), filter(rows -> table.equal("email", "Ben@X.io", rows)));
+		assertEquals(ids(3), filter(rows -> table.equal("id", 3L, rows)));
+		assertEquals(ids(), filter(rows -> table.equal("id", 9, rows)));
+	}
+
+	@Test
+	void valueOfAnotherTypeIsLeftToTheDatabase() {
+		assertFalse(table.equal("id", "3", table.all()));
+		assertFalse(table.equal("email", 3L, table.all()));
+		assertFalse(table.equal("age", 3L, table.all()));
+		assertFalse(table.in("email", List.of("anna@x.io", 3L), table.all()));
+	}
+
+	@Test
+	void boundsAreIncludedAndNullsExcluded() {
+		assertEquals(ids(3, 4, 5, 6), filter(rows -> table.compare("id", 3L, true, rows)));
+		assertEquals(ids(1, 2), filter(rows -> table.compare("id", 2, false, rows)));
+		assertEquals(ids(2), filter(rows -> table.compare("email", "b", false, rows)));
+		assertEquals(ids(1, 4, 5, 6), filter(rows -> table.compare("email", "b", true, rows)));
+	}
+
+	@Test
+	void inIsTheUnionOfTheEqualities() {
+		assertEquals(ids(1, 2, 5, 6), filter(rows -> table.in("email", List.of("anna@x.io", "dora@y.io", "ben@x.io", "zed@x.io"), rows)));
+		assertEquals(ids(), filter(rows -> table.in("email", List.of(), rows)));
+	}
+
+	@Test
+	void likeFollowsTheMatchMode() {
+		assertEquals(ids(1, 3, 4, 6), filter(rows -> table.like("fullName", "BEN", MatchMode.CONTAINS, rows)));
+		// Shorter than a trigram
+		assertEquals(ids(1, 3, 4, 6), filter(rows -> table.like("fullName", "en", MatchMode.CONTAINS, rows)));
+		assertEquals(ids(1, 3, 6), filter(rows -> table.like("fullName", "ben", MatchMode.PREFIX, rows)));
+		assertEquals(ids(1, 6), filter(rows -> table.like("fullName", "ben ali", MatchMode.EXACT, rows)));
+		// Not indexed by trigram
+		assertEquals(ids(4, 5), filter(rows -> table.like("email", "@y.", MatchMode.CONTAINS, rows)));
+	}
+
+	@Test
+	void fullTextIsLeftToTheDatabase() {
+		assertFalse(table.like("fullName", "ben", MatchMode.FULL_TEXT, table.all()));
+		assertFalse(table.like("id", "1", MatchMode.CONTAINS, table.all()));
+	}
+
+	@Test
+	void filtersKeepOnlyTheRowsGiven() {
+		BitSet rows = filter(candidates -> table.compare("id", 4L, true, candidates));
+
+		assertTrue(table.like("fullName", "ben", MatchMode.CONTAINS, rows));
+		assertEquals(ids(4, 6), rows);
+	}
+
+	@Test
+	void pageIsInIdOrderByDefault() {
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), page(table.all(), List.of(), 0, 10));
+		assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L), page(table.all(), List.of(order(ID, true)), 0, 10));
+		assertEquals(List.of(5L, 4L), page(table.all(), List.of(order(ID, true)), 1, 2));
+		assertEquals(List.of(4L, 2L), page(ids(2, 4), List.of(order(ID, true)), 0, 10));
+	}
+
+	@Test
+	void pageSortsNullsFirstAndCaseInsensitive() {
+		List<Long> ascending = List.of(3L, 2L, 1L, 6L, 4L, 5L);
+		assertEquals(ascending, page(table.all(), List.of(order(EMAIL, false), order(ID, false)), 0, 10));
+		assertEquals(ascending, page(table.all(), List.of(order(EMAIL, false)), 0, 10));
+		assertEquals(List.of(5L, 4L, 6L, 1L, 2L, 3L), page(table.all(), List.of(order(EMAIL, true), order(ID, true)), 0, 10));
+		// The ids of equal values in ascending order
+		assertEquals(List.of(5L, 4L, 1L, 6L, 2L, 3L), page(table.all(), List.of(order(EMAIL, true), order(ID, false)), 0, 10));
+		assertEquals(List.of(6L, 4L), page(table.all(), List.of(order(EMAIL, false), order(ID, false)), 3, 2));
+	}
+
+	@Test
+	void sortOnAnotherTableIsLeftToTheDatabase() {
+		SortRegistry.SortField joined = new SortRegistry.SortField("course", "course", "title", false, false);
+		SortRegistry.SortField unknown = new SortRegistry.SortField("age", null, "age", false, false);
+
+		assertNull(table.page(table.all(), List.of(order(joined, false)), 0, 10));
+		assertNull(table.page(table.all(), List.of(order(unknown, false), order(ID, false)), 0, 10));
+	}
+
+	@Test
+	void writeReplacesTheRowsOfTheSameId() {
+		InMemoryTable<Student> written = table.with(List.of(new Student(2L, "Anna Bell", "anna@z.io", null), new Student(7L, "Eve Moss", "eve@x.io", null)));
+
+		assertEquals(7, written.size());
+		assertEquals(7L, written.getMaxId());
+		assertTrue(filter(written, rows -> written.equal("email", "anna@x.io", rows)).isEmpty());
+		assertEquals(ids(2), filter(written, rows -> written.equal("email", "anna@z.io", rows)));
+		assertEquals(ids(7), filter(written, rows -> written.like("fullName", "eve", MatchMode.CONTAINS, rows)));
+		// The table written to is left as it was
+		assertEquals(6, table.size());
+		assertEquals(ids(2), filter(rows -> table.equal("email", "anna@x.io", rows)));
+	}
+
+	private BitSet filter(Function<BitSet, Boolean> filter) {
+		return filter(table, filter);
+	}
+
+	private static BitSet filter(InMemoryTable<Student> table, Function<BitSet, Boolean> filter) {
+		BitSet rows = table.all();
+		assertTrue(filter.apply(rows));
+		return rows;
+	}
+
+	private List<Long> page(BitSet rows, List<SortRegistry.SortOrder> sortOrders, int firstResult, int maxResults) {
+		return table.page(rows, sortOrders, firstResult, maxResults).stream().map(Student::getId).collect(Collectors.toList());
+	}
+
+	/**
+	 * <p>The rows of the students of ids {@code ids}, the ids start at 1 with no gap.</p>
+	 */
+	private static BitSet ids(long... ids) {
+		BitSet rows = new BitSet();
+		for (long id : ids) rows.set((int) id - 1);
+		return rows;
+	}
+
+	private static SortRegistry.SortOrder order(SortRegistry.SortField field, boolean desc) {
+		return new SortRegistry.SortOrder(field, desc);
+	}
+
+	private static InMemoryTable<Student> studentTable() {
+		Map<String, Function<Student, Object>> readers = Map.of("id", Student::getId, "fullName", Student::getFullName, "email", Student::getEmail);
+		return new InMemoryTable<>(Student.class, STUDENTS, Student::getId, readers, Set.of("fullName"));
+	}
+}
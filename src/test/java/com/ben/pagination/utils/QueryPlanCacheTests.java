@@ -0,0 +1,151 @@
+package com.ben.pagination.utils;
+
+import com.ben.pagination.criteria.StudentCriteria;
+import com.ben.pagination.entity.Student;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.ParameterExpression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class QueryPlanCacheTests {
+
+	private QueryPlanCache cache;
+	private PagingRepositoryHelper helper;
+	private final AtomicInteger builds = new AtomicInteger();
+
+	@BeforeEach
+	void createCache() {
+		PaginationProperties properties = new PaginationProperties();
+		properties.getPlanCache().setMaxSize(2);
+		cache = new QueryPlanCache();
+		ReflectionTestUtils.setField(cache, "properties", properties);
+		helper = new PagingRepositoryHelper();
+		ReflectionTestUtils.setField(helper, "objectMapper", new ObjectMapper());
+	}
+
+	@Test
+	void planIsBuiltOncePerShape() {
+		QueryPlan<StudentCriteria, Object> plan = cache.get(shape("fullName"), criteria("ben"), this::plan);
+
+		assertSame(plan, cache.get(shape("fullName"), criteria("anna"), this::plan));
+		assertEquals(1, builds.get());
+		assertEquals(1, cache.getStats().getHits());
+		assertEquals(1, cache.getStats().getMisses());
+	}
+
+	@Test
+	void planIsRebuiltWhenAGuardDiffers() {
+		QueryPlan<StudentCriteria, Object> filled = cache.get(shape("fullName"), criteria("ben"), () -> guardedPlan(criteria("ben")));
+
+		QueryPlan<StudentCriteria, Object> blank = cache.get(shape("fullName"), criteria(""), () -> guardedPlan(criteria("")));
+
+		assertNotSame(filled, blank);
+		assertSame(blank, cache.get(shape("fullName"), criteria(""), () -> guardedPlan(criteria(""))));
+		assertEquals(2, builds.get());
+	}
+
+	@Test
+	void uncacheablePlanIsNotKept() {
+		QueryBindings<StudentCriteria> bindings = new QueryBindings<>();
+		bindings.markUncacheable();
+		QueryPlan<StudentCriteria, Object> inlined = new QueryPlan<>(shape("fullName"), null, bindings);
+
+		cache.get(shape("fullName"), criteria("ben"), () -> inlined);
+
+		assertEquals(0, cache.getStats().getSize());
+		assertNotSame(inlined, cache.get(shape("fullName"), criteria("ben"), this::plan));
+	}
+
+	@Test
+	void leastRecentlyUsedPlanIsEvicted() {
+		QueryPlan<StudentCriteria, Object> fullName = cache.get(shape("fullName"), criteria("ben"), this::plan);
+		cache.get(shape("email"), criteria("ben"), this::plan);
+		cache.get(shape("fullName"), criteria("ben"), this::plan);
+		cache.get(shape("fullName,email"), criteria("ben"), this::plan);
+
+		assertEquals(2, cache.getStats().getSize());
+		assertEquals(1, cache.getStats().getEvictions());
+		assertSame(fullName, cache.get(shape("fullName"), criteria("ben"), this::plan));
+		assertEquals(3, builds.get());
+	}
+
+	@Test
+	void parametersAreNamedInOrderAndBoundFromTheCriteria() {
+		QueryBindings<StudentCriteria> bindings = new QueryBindings<>();
+		CriteriaBuilder cb = mock(CriteriaBuilder.class, RETURNS_MOCKS);
+		bindings.bind(cb, String.class, StudentCriteria::getFullName);
+		bindings.bind(cb, String.class, StudentCriteria::getEmail);
+		verify(cb).parameter(String.class, "p0");
+		verify(cb).parameter(String.class, "p1");
+
+		StudentCriteria criteria = criteria("ben");
+		criteria.setEmail("ben@x.io");
+		Query query = mock(Query.class);
+		bindings.applyTo(query, criteria);
+
+		verify(query).setParameter("p0", "ben");
+		verify(query).setParameter("p1", "ben@x.io");
+	}
+
+	@Test
+	void valueIsALiteralOutsideOfAPlanBuild() {
+		CriteriaBuilder cb = mock(CriteriaBuilder.class, RETURNS_MOCKS);
+
+		helper.value(cb, String.class, criteria("ben"), StudentCriteria::getFullName);
+
+		verify(cb).literal("ben");
+	}
+
+	@Test
+	void guardsMatchTheCriteriaThePlanWasBuiltFor() {
+		QueryBindings<StudentCriteria> bindings = new QueryBindings<>();
+		helper.withBindings(bindings, () -> {
+			helper.guard(criteria("ben"), c -> c.getFullName().isEmpty());
+			return null;
+		});
+
+		assertTrue(bindings.matches(criteria("anna")));
+		assertFalse(bindings.matches(criteria("")));
+	}
+
+	private QueryPlan<StudentCriteria, Object> plan() {
+		builds.incrementAndGet();
+		return new QueryPlan<>(null, null, new QueryBindings<>());
+	}
+
+	private QueryPlan<StudentCriteria, Object> guardedPlan(StudentCriteria criteria) {
+		builds.incrementAndGet();
+		QueryBindings<StudentCriteria> bindings = new QueryBindings<>();
+		Expression<?> pattern = helper.withBindings(bindings, () -> {
+			helper.guard(criteria, c -> c.getFullName().isEmpty());
+			return helper.value(mock(CriteriaBuilder.class, RETURNS_MOCKS), String.class, criteria, StudentCriteria::getFullName);
+		});
+		assertTrue(pattern instanceof ParameterExpression);
+		return new QueryPlan<>(null, null, bindings);
+	}
+
+	private static QueryShape shape(String fields) {
+		return new QueryShape(Student.class, "search", fields, null);
+	}
+
+	private static StudentCriteria criteria(String fullName) {
+		StudentCriteria criteria = new StudentCriteria();
+		criteria.setFullName(fullName);
+		return criteria;
+	}
+}
@@ -0,0 +1,82 @@
+package com.ben.pagination.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaRoutingDataSourceTests {
+
+	private EmbeddedDatabase primary;
+	private EmbeddedDatabase replica;
+	private EmbeddedDatabase otherReplica;
+
+	@BeforeEach
+	void startDatabases() {
+		primary = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("primary").build();
+		replica = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("replica").build();
+		otherReplica = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("otherReplica").build();
+	}
+
+	@AfterEach
+	void stopDatabases() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		primary.shutdown();
+		replica.shutdown();
+		otherReplica.shutdown();
+	}
+
+	@Test
+	void writesGoToThePrimary() throws SQLException {
+		DataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(replica), ReplicaSelection.ROUND_ROBIN, Duration.ofSeconds(30));
+
+		assertTrue(databaseUrl(dataSource).contains(":primary"));
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplicasInTurn() throws SQLException {
+		DataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(replica, otherReplica), ReplicaSelection.ROUND_ROBIN, Duration.ofSeconds(30));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertTrue(databaseUrl(dataSource).contains(":replica"));
+		assertTrue(databaseUrl(dataSource).contains(":otherReplica"));
+		assertTrue(databaseUrl(dataSource).contains(":replica"));
+	}
+
+	@Test
+	void unavailableReplicaFailsOverToThePrimary() throws SQLException {
+		DataSource down = new AbstractDataSource() {
+			@Override
+			public Connection getConnection() throws SQLException {
+				throw new SQLException("Connection refused");
+			}
+
+			@Override
+			public Connection getConnection(String username, String password) throws SQLException {
+				throw new SQLException("Connection refused");
+			}
+		};
+		DataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(down), ReplicaSelection.ROUND_ROBIN, Duration.ofSeconds(30));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertTrue(databaseUrl(dataSource).contains(":primary"));
+	}
+
+	private static String databaseUrl(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			return connection.getMetaData().getURL();
+		}
+	}
+}